@@ -1,7 +1,9 @@
 package com.pennypop.project;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This AI uses the "Deep Blue" strategy of AI by looking at moves ahead
@@ -10,6 +12,52 @@ import java.util.Random;
  * is adjustable. The higher the ply the more into the "future" it can look
  * but slower the AIPlayer performs.
  * 
+ * The search can either be the full "MINIMAX" that looks at every column or
+ * "ALPHABETA" which skips the columns that can't change the result. Both pick
+ * from the same best columns but alpha-beta can look a lot further ahead in
+ * the same amount of time. "PARALLEL" is the alpha-beta search with the
+ * columns split up over several threads.
+ * 
+ * With a time limit the "ALPHABETA" search looks one more ply ahead at a time
+ * until the time is used up, so the AI takes about the same time for every
+ * move no matter how full the board is. The ply is then the most it will look.
+ * 
+ * "SOLVER" plays perfectly by solving the board to the end of the game with
+ * the Solver. Its scores are 50 for a tie, above 50 for a win and below for a
+ * loss. If the board is too big for it the move is made with the "ALPHABETA"
+ * search instead. If it can't finish in the time limit (SOLVER_TIME_LIMIT
+ * when none is set) the "ALPHABETA" search gets the time that is left.
+ * 
+ * A BoardEvaluator can be set to score the boards at the end of the ply that
+ * nobody has won. Without one they are all a 50 and most columns end up tied,
+ * with the ThreatEvaluator the AI plays about as well at a much lower ply.
+ * 
+ * With an OpeningBook the AI takes the scores of the first moves of the game
+ * from the book and only searches once the board isn't in it.
+ * 
+ * nextMove doesn't create any objects once the AI has made its first move
+ * (except for the "PARALLEL" search), the scores for each ply are kept in
+ * buffers that are reused so lots of games can run without the garbage
+ * collector getting in the way.
+ * 
+ * SearchListeners are told what every move cost (boards looked at, depth,
+ * cutoffs, table hits and time) through a SearchMetrics, a SearchCounters
+ * adds them up. Without any listeners nothing is measured.
+ * 
+ * All of the searches only look at the left half of the columns when the board
+ * is the same flipped left to right, the right half gets the same scores.
+ * 
+ * ponder lets the AI think while the opponent is deciding. It searches the
+ * board after each column the opponent could play and keeps the scores, so
+ * when the opponent makes one of those moves nextMove only has to pick from
+ * them and answers right away. The "PARALLEL" search doesn't ponder since it
+ * can't be stopped when the opponent moves.
+ * 
+ * nextMoves finds the moves for a lot of boards at once, like when many games
+ * are waiting for the AI. Boards that are the same or mirror images of each
+ * other are only searched once, and all of them share the same buffers,
+ * evaluator and TranspositionTable.
+ * 
  * @author Erik Gallegos
  * */
 public class AIPlayer {
@@ -19,11 +67,228 @@ public class AIPlayer {
 	private String tieBreakType;
 	//the level of turns the AI will be able to look ahead
 	private int ply;
+	//memory for the transposition table of the "SOLVER"
+	static final long SOLVER_TABLE_BYTES = 64L*1024*1024;
+	//milliseconds the "SOLVER" gets for a move when no time limit is set
+	private static final long SOLVER_TIME_LIMIT = 1000;
+	
+	//The search used to score the columns. "MINIMAX" "ALPHABETA" "PARALLEL" "SOLVER"
+	private String searchType;
+	private AlphaBetaSearch alphaBeta;
+	private Solver solver;
+	private ParallelSearch parallel;
+	//used to break ties when the tie break is "RANDOM"
+	private Random random;
+	//scores the boards at the end of the ply, null to score them all 50
+	private BoardEvaluator evaluator;
+	//scores of the first moves worked out ahead of time, null to always search
+	private OpeningBook openingBook;
+	//milliseconds the "ALPHABETA" search is allowed to take, 0 for no limit
+	private long timeLimit;
+	//boards the "MINIMAX" search has looked at
+	private long nodes;
+	//scores of the columns for each ply of the minimax, [ply] is the root
+	private double[][] scoreBuffers;
+	//scores nextMove gives to tieBreakMove
+	private double[] rootScores;
+	//columns tied for the best score, used by tieBreakMove
+	private int[] maxIndeces;
+	//told about every move, can be added to from other threads
+	private List<SearchListener> listeners;
+	//filled in for every move when there are listeners and reused
+	private SearchMetrics metrics;
+	//time the win checks and moves on the board, see TimedGameBoard
+	private boolean detailedTiming;
+	//where the scores of the last move came from, "BOOK", "PONDER" or the search that was used
+	private String lastSource;
+	//scores the last nextMove picked from, rootScores or one of the scoreBuffers
+	private double[] lastScores;
+	//for nextMoves, the canonical hash of each different board in the batch
+	private long[] batchKeys;
+	//whether that board was the mirror image of its canonical board
+	private boolean[] batchMirrored;
+	//scores of each different board in the batch
+	private double[][] batchScores;
+	//open addressing table of the batch, index into batchKeys plus one, 0 for empty
+	private int[] batchTable;
+	//a board's scores flipped left to right
+	private double[] flippedScores;
+	//hashes of the boards ponder searched and their scores, the first ponderCount are used
+	private long[] ponderKeys;
+	private double[][] ponderScores;
+	private int ponderCount;
+	//set by stopPondering from another thread
+	private volatile boolean ponderStopped;
+	//true if the evaluator reads the open windows, then the search uses searchBoard
+	private boolean countThreats;
+	//the AI's own copy of the board it searches with threat counting on, reused every move
+	private GameBoard searchBoard;
 
 	public AIPlayer(int argChecker, String argTieBreak, int argPly){
+		this(argChecker, argTieBreak, argPly, "MINIMAX");
+	}
+	
+	public AIPlayer(int argChecker, String argTieBreak, int argPly, String argSearchType){
 		checker = argChecker;
+		checkSettings(argTieBreak, argSearchType);
 		tieBreakType = argTieBreak;
 		ply = argPly;
+		searchType = argSearchType;
+		random = new Random();
+		listeners = new CopyOnWriteArrayList<SearchListener>();
+		if(searchType.equals("ALPHABETA")){
+			alphaBeta = new AlphaBetaSearch();
+		}
+		else if(searchType.equals("SOLVER")){
+			solver = new Solver(SOLVER_TABLE_BYTES);
+			//for boards the solver can't finish
+			alphaBeta = new AlphaBetaSearch();
+		}
+		else if(searchType.equals("PARALLEL")){
+			parallel = new ParallelSearch(Runtime.getRuntime().availableProcessors());
+		}
+	}
+	
+	//Throws an IllegalArgumentException if the constructor wouldn't take the tie break or search
+	public static void checkSettings(String tieBreak, String searchType){
+		if(!tieBreak.equals("LEFT") && !tieBreak.equals("RIGHT") && !tieBreak.equals("RANDOM")){
+			throw new IllegalArgumentException("Tie breaks are LEFT, RIGHT or RANDOM: " + tieBreak);
+		}
+		if(!searchType.equals("MINIMAX") && !searchType.equals("ALPHABETA") && !searchType.equals("PARALLEL")
+				&& !searchType.equals("SOLVER")){
+			throw new IllegalArgumentException("Searches are MINIMAX, ALPHABETA, PARALLEL or SOLVER: " + searchType);
+		}
+	}
+	
+	//Makes the "RANDOM" tie break pick the same moves every time for the same seed
+	public void setSeed(long seed){
+		random = new Random(seed);
+	}
+	
+	/*
+	 * Makes the "ALPHABETA" search go as deep as it can in the time given instead
+	 * of always searching the whole ply. The "SOLVER" gets this long to solve the
+	 * board and searches with what is left if it can't. 0 turns the time limit
+	 * off, except the "SOLVER" then gets SOLVER_TIME_LIMIT
+	 * */
+	public void setTimeLimit(long millis){
+		timeLimit = millis;
+	}
+	
+	//The ply of the last move that was searched with a time limit
+	public int getCompletedPly(){
+		if(alphaBeta != null && timeLimit > 0){
+			return alphaBeta.getCompletedPly();
+		}
+		return ply;
+	}
+	
+	//Number of boards this AI has looked at in all of its searches
+	public long getNodes(){
+		if(solver != null){
+			return solver.getNodes()+alphaBeta.getNodes();
+		}
+		if(alphaBeta != null){
+			return alphaBeta.getNodes();
+		}
+		if(parallel != null){
+			return parallel.getNodes();
+		}
+		return nodes;
+	}
+	
+	/*
+	 * Sets how boards that aren't a win or a loss are scored when the AI can't
+	 * look any further, null to give them all a 50
+	 * */
+	public void setEvaluator(BoardEvaluator argEvaluator){
+		evaluator = argEvaluator;
+		countThreats = argEvaluator instanceof ThreatEvaluator;
+		if(alphaBeta != null){
+			alphaBeta.setEvaluator(argEvaluator);
+		}
+		if(parallel != null){
+			parallel.setEvaluator(argEvaluator);
+		}
+	}
+	
+	//Boards in the book aren't searched, null to search every move
+	public void setOpeningBook(OpeningBook book){
+		openingBook = book;
+	}
+	
+	public void addSearchListener(SearchListener listener){
+		listeners.add(listener);
+	}
+	
+	public void removeSearchListener(SearchListener listener){
+		listeners.remove(listener);
+	}
+	
+	/*
+	 * Measures the time spent checking for wins and adding and taking off pieces.
+	 * It makes the search slower so it is off unless it is needed, and it only
+	 * works for the searches that run on this thread (not "PARALLEL")
+	 * */
+	public void setDetailedTiming(boolean argDetailedTiming){
+		detailedTiming = argDetailedTiming;
+	}
+	
+	//Number of times alpha-beta stopped early in all of this AI's searches
+	public long getCutoffs(){
+		long count = 0;
+		if(alphaBeta != null){
+			count += alphaBeta.getCutoffs();
+		}
+		if(solver != null){
+			count += solver.getCutoffs();
+		}
+		if(parallel != null){
+			count += parallel.getCutoffs();
+		}
+		return count;
+	}
+	
+	/*
+	 * Number of times this AI's searches looked in a TranspositionTable, or only the times it was there.
+	 * Each search counts its own lookups so other threads sharing the table aren't counted
+	 * */
+	private long tableLookups(boolean onlyHits){
+		long count = 0;
+		if(alphaBeta != null){
+			count += onlyHits ? alphaBeta.getTableHits() : alphaBeta.getTableProbes();
+		}
+		if(solver != null){
+			count += onlyHits ? solver.getTableHits() : solver.getTableProbes();
+		}
+		if(parallel != null){
+			count += onlyHits ? parallel.getTableHits() : parallel.getTableProbes();
+		}
+		return count;
+	}
+	
+	//Number of threads for the "PARALLEL" search, defaults to the number of cores
+	public void setThreadCount(int threadCount){
+		if(parallel != null){
+			parallel.setThreadCount(threadCount);
+		}
+	}
+	
+	/*
+	 * How deep the "PARALLEL" search splits the work. 1 gives each column its own
+	 * thread, 2 also gives each reply of the opponent its own thread
+	 * */
+	public void setSplitDepth(int splitDepth){
+		if(parallel != null){
+			parallel.setSplitDepth(splitDepth);
+		}
+	}
+	
+	//Stops the threads of the "PARALLEL" search
+	public void shutdown(){
+		if(parallel != null){
+			parallel.shutdown();
+		}
 	}
 	
 	//Method to return the checker number of the opponent
@@ -43,7 +308,10 @@ public class AIPlayer {
 		if(b.winsFor(oppColor())){
 			return 0.0;
 		}
-		//anything else is a neither a win or loss so return 50
+		//anything else is a neither a win or loss so return 50, or what the evaluator thinks of it
+		if(evaluator != null){
+			return evaluator.evaluate(b, checker);
+		}
 		return 50.0;
 	}
 	
@@ -55,31 +323,58 @@ public class AIPlayer {
 				maxScore = scores[i];
 			}
 		}
-		//An arraylist to store the indeces where the maxScore occurs
-		ArrayList<Integer> maxIndeces = new ArrayList<Integer>();
+		//An array to store the indeces where the maxScore occurs, kept between moves
+		if(maxIndeces == null || maxIndeces.length < scores.length){
+			maxIndeces = new int[scores.length];
+		}
+		int maxCount = 0;
 		for(int i = 0; i < scores.length; i++){
 			if(scores[i] == maxScore){
-				maxIndeces.add(i);
+				maxIndeces[maxCount++] = i;
 			}
 		}
 		int pickedIndex = 0;
 		/*could have used switch statements but didn't want to change project settings
 		to allow me to use strings in case*/
-		if(tieBreakType == "LEFT"){
+		if(tieBreakType.equals("LEFT")){
 			//use the leftmost index to break the tie
 			pickedIndex = 0;			
 		}
-		else if(tieBreakType == "RIGHT"){
+		else if(tieBreakType.equals("RIGHT")){
 			//use the rightmost index to break the tie
-			pickedIndex = maxIndeces.size()-1;			
+			pickedIndex = maxCount-1;			
 		}
 		//Random works best with the AI
-		else if(tieBreakType == "RANDOM"){
-			Random rand = new Random();
+		else if(tieBreakType.equals("RANDOM")){
 			//Pick the index by random
-			pickedIndex = rand.nextInt(maxIndeces.size());
+			pickedIndex = random.nextInt(maxCount);
+		}
+		return maxIndeces[pickedIndex];			
+	}
+	
+	/*
+	 * Lets the AI remember boards it has already searched. Only used by the
+	 * "ALPHABETA" and "PARALLEL" searches, the table can be kept between moves and games
+	 * */
+	public void setTranspositionTable(TranspositionTable table){
+		if(alphaBeta != null){
+			alphaBeta.setTranspositionTable(table);
+		}
+		if(parallel != null){
+			parallel.setTranspositionTable(table);
+		}
+	}
+	
+	/*
+	 * Gives the "SOLVER" a Solver made somewhere else. A Solver can only solve one
+	 * board at a time, so only share one between players that never search at
+	 * the same time, like the two players of a GameServer worker. Their node
+	 * counts then include each other's searches
+	 * */
+	public void setSolver(Solver argSolver){
+		if(solver != null){
+			solver = argSolver;
 		}
-		return maxIndeces.get(pickedIndex);			
 	}
 	
 	/*
@@ -89,34 +384,135 @@ public class AIPlayer {
 	 * 
 	 * */
 	public double[] scoresFor(GameBoard b){
-		//Array representing the columns
+		clearStop();
 		double[] scores = new double[b.getNumColumns()];
+		double[] found = searchScores(b, scores);
+		//the minimax gives back its own buffer so copy it for the caller to keep
+		if(found != scores){
+			System.arraycopy(found, 0, scores, 0, scores.length);
+		}
+		return scores;
+	}
+	
+	/*
+	 * Scores the columns with the opening book or the search this AI uses. The minimax fills in a buffer
+	 * that is reused for every move, the other searches fill in the array passed in
+	 * */
+	private double[] searchScores(GameBoard b, double[] scores){
+		if(ponderCount > 0 && ponderedScores(b, scores)){
+			lastSource = "PONDER";
+			return scores;
+		}
+		if(openingBook != null && openingBook.lookup(b, checker, scores)){
+			lastSource = "BOOK";
+			return scores;
+		}
+		//the caller's board isn't given threat counting since it would slow down all of its moves
+		if(countThreats && b.getThreatCounter() == null){
+			b = searchBoard(b);
+		}
+		if(solver != null && Solver.canSolve(b)){
+			//an open board could take the solver hours so it always has a limit
+			long limit = timeLimit > 0 ? timeLimit : SOLVER_TIME_LIMIT;
+			long start = System.nanoTime();
+			if(solver.scoresFor(b, checker, limit, scores)){
+				lastSource = "SOLVER";
+				return scores;
+			}
+			//the search only gets the time that is left so the move still takes about the limit
+			long left = Math.max(0, limit-(System.nanoTime()-start)/1000000);
+			lastSource = "ALPHABETA";
+			alphaBeta.scoresWithin(b, checker, ply, left, scores);
+			return scores;
+		}
+		lastSource = alphaBeta != null ? "ALPHABETA" : searchType;
+		if(alphaBeta != null && timeLimit > 0){
+			alphaBeta.scoresWithin(b, checker, ply, timeLimit, scores);
+			return scores;
+		}
+		if(alphaBeta != null){
+			alphaBeta.scoresFor(b, checker, ply, scores);
+			return scores;
+		}
+		if(parallel != null){
+			return parallel.scoresFor(b, checker, ply);
+		}
+		setScoreBuffers(b.getNumColumns());
+		minimax(b, checker, ply);
+		return scoreBuffers[ply];
+	}
+	
+	//Copies the board into searchBoard, it is only made again if the size of the board changes
+	private GameBoard searchBoard(GameBoard b){
+		if(searchBoard == null || searchBoard.getNumRows() != b.getNumRows()
+				|| searchBoard.getNumColumns() != b.getNumColumns()
+				|| searchBoard.getConnectNumber() != b.getConnectNumber()){
+			searchBoard = new GameBoard(b);
+			searchBoard.setThreatCounting(true);
+		}
+		else{
+			searchBoard.copyFrom(b);
+		}
+		return searchBoard;
+	}
+	
+	/*
+	 * The minimax for one player, the scores of the columns go in scoreBuffers[plyLeft].
+	 * Every ply has its own buffer so the search doesn't have to make new arrays
+	 * */
+	private void minimax(GameBoard b, int player, int plyLeft){
+		nodes++;
+		//stopPondering was called, the scores are thrown away so just unwind
+		if(ponderStopped && plyLeft > 0){
+			return;
+		}
+		double[] scores = scoreBuffers[plyLeft];
+		int opponent = 3-player;
+		//the board is the same for every column so only check for a winner once
+		double winnerScore = -1.0;
+		//what the open columns get when there is no ply left
+		double leafScore = 50.0;
+		if(b.winsFor(player)){
+			winnerScore = 100.0;
+		}
+		else if(b.winsFor(opponent)){
+			winnerScore = 0.0;
+		}
+		else if(plyLeft == 0 && evaluator != null){
+			leafScore = evaluator.evaluate(b, player);
+		}
+		//at the top a board that is the same flipped only needs its left half searched
+		boolean symmetric = plyLeft == ply && plyLeft > 0 && b.isMirrorSymmetric();
 		//going through all the columns
 		for(int c = 0; c < scores.length;c++){
+			//the mirror column on the left already has the score
+			if(symmetric && c > scores.length-1-c){
+				scores[c] = scores[scores.length-1-c];
+			}
 			//a full column is not an option so it gets a score of -1
-			if(b.isColumnFull(c)){
+			else if(b.isColumnFull(c)){
 				scores[c] = -1.0;
 			}
 			//if there is a winning line then score appropriately
-			else if(b.winsFor(checker) || b.winsFor(oppColor())){
-				scores[c] = scoreBoard(b);
+			else if(winnerScore >= 0.0){
+				scores[c] = winnerScore;
 			}
-			//everything else is a tie so it gets a score of 50
-			else if(ply == 0){
-				scores[c] = 50.0;
+			//everything else is a tie so it gets a score of 50, unless there is an evaluator
+			else if(plyLeft == 0){
+				scores[c] = leafScore;
 			}
 			//if there are more ply levels then there is recursion
 			else{
 				//simulate adding the move by actually adding it on the board
-				b.addMove(c,checker);
-				//check for victory
-				if(b.winsFor(checker)){
+				b.addMove(c,player);
+				//check for victory, only the new piece can make a line since nobody had won
+				if(b.lastMoveWins()){
 					scores[c] = 100.0;
 				}
 				//See how this affects the opponent
 				else{
-					AIPlayer opponent = new AIPlayer(oppColor(),tieBreakType,ply-1);
-					double[] oppScore = opponent.scoresFor(b);
+					minimax(b, opponent, plyLeft-1);
+					double[] oppScore = scoreBuffers[plyLeft-1];
 					double maxScore = -2.0;
 					//See what is the best move for the opponent
 					for(int i = 0; i < oppScore.length; i++){
@@ -131,13 +527,233 @@ public class AIPlayer {
 				b.delMove(c);
 			}
 		}
-		return scores;
+	}
+	
+	//Makes the buffers for the minimax and the tie break the first time or if the board size changes
+	private void setScoreBuffers(int numColumns){
+		if(scoreBuffers == null || scoreBuffers[0].length != numColumns){
+			scoreBuffers = new double[ply+1][numColumns];
+		}
 	}
 	
 	/*This method puts the other methods together so this is all that is needed to be
 	called to make the next move*/
 	public int nextMove(GameBoard b){
-		double[] scores = scoresFor(b);
-		return tieBreakMove(scores);
+		clearStop();
+		if(rootScores == null || rootScores.length != b.getNumColumns()){
+			rootScores = new double[b.getNumColumns()];
+		}
+		if(listeners.isEmpty()){
+			lastScores = searchScores(b, rootScores);
+			return tieBreakMove(lastScores);
+		}
+		return measuredMove(b);
+	}
+	
+	/*
+	 * Puts the next move for each of the first count boards in moves, like calling
+	 * nextMove on them one at a time. A board that is the same as one earlier in
+	 * the batch, or its mirror image, isn't searched again, its move is picked
+	 * from the scores of the first one. The listeners are told about each search
+	 * but not about the boards that were skipped. The boards are searched one
+	 * after another on the calling thread since an AIPlayer's buffers can only
+	 * be used by one search at a time, to use more cores split the batch between
+	 * several AIPlayers like GameServer does with its workers
+	 * */
+	public void nextMoves(GameBoard[] boards, int count, int[] moves){
+		setBatchSize(count);
+		int mask = batchTable.length-1;
+		int unique = 0;
+		for(int i = 0; i < count; i++){
+			GameBoard b = boards[i];
+			long key = b.getCanonicalHash();
+			//the low bits of the hash are already random
+			int slot = (int)key & mask;
+			while(batchTable[slot] != 0 && batchKeys[batchTable[slot]-1] != key){
+				slot = (slot+1) & mask;
+			}
+			if(batchTable[slot] != 0){
+				int found = batchTable[slot]-1;
+				double[] scores = batchScores[found];
+				if(batchMirrored[found] != b.isCanonicalMirrored()){
+					if(flippedScores == null || flippedScores.length != scores.length){
+						flippedScores = new double[scores.length];
+					}
+					for(int c = 0; c < scores.length; c++){
+						flippedScores[scores.length-1-c] = scores[c];
+					}
+					scores = flippedScores;
+				}
+				moves[i] = tieBreakMove(scores);
+				continue;
+			}
+			moves[i] = nextMove(b);
+			batchKeys[unique] = key;
+			batchMirrored[unique] = b.isCanonicalMirrored();
+			if(batchScores[unique] == null || batchScores[unique].length != lastScores.length){
+				batchScores[unique] = new double[lastScores.length];
+			}
+			System.arraycopy(lastScores, 0, batchScores[unique], 0, lastScores.length);
+			batchTable[slot] = ++unique;
+		}
+	}
+	
+	/*
+	 * Searches the board after each column the opponent could play on the board,
+	 * starting from the center, and keeps the scores for nextMove. Meant to be run
+	 * on the AI's own thread while the opponent is deciding, it stops early once
+	 * stopPondering is called. Replaces whatever the last ponder found and returns
+	 * how many boards it searched. The "PARALLEL" search can't be stopped part way
+	 * so it doesn't ponder at all and always returns 0
+	 * */
+	public int ponder(GameBoard b){
+		int numColumns = b.getNumColumns();
+		ponderCount = 0;
+		if(parallel != null){
+			return 0;
+		}
+		if(ponderKeys == null || ponderKeys.length != numColumns){
+			ponderKeys = new long[numColumns];
+			ponderScores = new double[numColumns][numColumns];
+		}
+		int opponent = oppColor();
+		for(int i = 0; i < numColumns && !ponderStopped; i++){
+			//center out, the columns in the middle are the ones most often played
+			int c = numColumns/2+((i%2 == 0) ? i/2 : -(i+1)/2);
+			if(c < 0 || c >= numColumns || !b.addMove(c, opponent)){
+				continue;
+			}
+			//after a win or a full board there is no move to make
+			if(!b.lastMoveWins() && !b.isFull()){
+				double[] scores = searchScores(b, ponderScores[ponderCount]);
+				//a search that was stopped has the wrong scores
+				if(!ponderStopped){
+					if(scores != ponderScores[ponderCount]){
+						System.arraycopy(scores, 0, ponderScores[ponderCount], 0, numColumns);
+					}
+					ponderKeys[ponderCount++] = b.getHash();
+				}
+			}
+			b.delMove(c);
+		}
+		return ponderCount;
+	}
+	
+	/*
+	 * Makes ponder stop as soon as it can. It only sets volatile flags so it can be
+	 * called from any thread, usually once the opponent has moved. The next nextMove
+	 * or scoresFor starts searching again. If one of them is running it gives up
+	 * too and its move is wrong, so only do that when the move is thrown away
+	 * anyway, like when the game is closed
+	 * */
+	public void stopPondering(){
+		ponderStopped = true;
+		if(alphaBeta != null){
+			alphaBeta.stop();
+		}
+		if(solver != null){
+			solver.stop();
+		}
+	}
+	
+	//Lets the searches run again after stopPondering
+	private void clearStop(){
+		ponderStopped = false;
+		if(alphaBeta != null){
+			alphaBeta.clearStop();
+		}
+		if(solver != null){
+			solver.clearStop();
+		}
+	}
+	
+	//Copies the scores ponder found for the board, false if it didn't search it
+	private boolean ponderedScores(GameBoard b, double[] scores){
+		if(scores.length != ponderKeys.length){
+			return false;
+		}
+		long key = b.getHash();
+		for(int i = 0; i < ponderCount; i++){
+			if(ponderKeys[i] == key){
+				System.arraycopy(ponderScores[i], 0, scores, 0, scores.length);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	//Makes the batch arrays big enough for count boards and empties the table
+	private void setBatchSize(int count){
+		if(batchKeys == null || batchKeys.length < count){
+			batchKeys = new long[count];
+			batchMirrored = new boolean[count];
+			batchScores = new double[count][];
+		}
+		//at most half full so the probes stay short
+		int tableSize = Integer.highestOneBit(Math.max(count, 1)*2-1)*2;
+		if(batchTable == null || batchTable.length < tableSize){
+			batchTable = new int[tableSize];
+		}
+		else{
+			Arrays.fill(batchTable, 0);
+		}
+	}
+	
+	//Same as nextMove but fills in the SearchMetrics and tells the listeners
+	private int measuredMove(GameBoard b){
+		if(metrics == null){
+			metrics = new SearchMetrics();
+		}
+		long start = System.nanoTime();
+		long startNodes = getNodes();
+		long startCutoffs = getCutoffs();
+		long startProbes = tableLookups(false);
+		long startHits = tableLookups(true);
+		GameBoard board = b;
+		if(detailedTiming){
+			board = new TimedGameBoard(b);
+			//it is already the AI's own copy so it can count the threats itself
+			if(countThreats){
+				board.setThreatCounting(true);
+			}
+		}
+		double[] scores = searchScores(board, rootScores);
+		lastScores = scores;
+		int column = tieBreakMove(scores);
+		metrics.totalNanos = System.nanoTime()-start;
+		metrics.source = lastSource;
+		metrics.column = column;
+		metrics.score = scores[column];
+		metrics.nodes = getNodes()-startNodes;
+		metrics.cutoffs = getCutoffs()-startCutoffs;
+		metrics.tableProbes = tableLookups(false)-startProbes;
+		metrics.tableHits = tableLookups(true)-startHits;
+		metrics.result = null;
+		metrics.movesToEnd = -1;
+		if(lastSource.equals("BOOK")){
+			metrics.depth = openingBook.getPly();
+		}
+		else if(lastSource.equals("SOLVER")){
+			//the picked column has the best score, which is the solver's score of the board plus 50
+			int solved = (int)scores[column]-50;
+			metrics.result = solved > 0 ? "WIN" : (solved < 0 ? "LOSS" : "TIE");
+			metrics.movesToEnd = Solver.movesToEnd(solved, b);
+			metrics.depth = metrics.movesToEnd;
+		}
+		else{
+			metrics.depth = getCompletedPly();
+		}
+		if(board instanceof TimedGameBoard){
+			metrics.winCheckNanos = ((TimedGameBoard)board).getWinCheckNanos();
+			metrics.moveNanos = ((TimedGameBoard)board).getMoveNanos();
+		}
+		else{
+			metrics.winCheckNanos = 0;
+			metrics.moveNanos = 0;
+		}
+		for(SearchListener listener : listeners){
+			listener.searchFinished(this, metrics);
+		}
+		return column;
 	}
 }
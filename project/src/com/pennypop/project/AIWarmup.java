@@ -0,0 +1,85 @@
+package com.pennypop.project;
+
+/**
+ * This class gets the AI ready while the game is starting. The first searches
+ * the JVM runs are slow since the code is still being interpreted, so the
+ * AI that ConnectFourScreen uses scores a few boards over and over on a low
+ * priority thread until the JIT has compiled the search. Then the first move
+ * of the first game is as quick as every other one.
+ *
+ * @author Erik Gallegos
+ * */
+public class AIWarmup implements Runnable {
+
+	//boards from the start of a game to the middle, as setBoard strings
+	private static final String[] POSITIONS = {
+		"",
+		"3",
+		"32",
+		"2333",
+		"442332",
+		"43234224",
+		"4423440046",
+		"244222236060",
+		"24433353220661"
+	};
+
+	private final long timeLimit;
+	private volatile boolean done;
+	private volatile long millis;
+	private volatile int searches;
+
+	//Searches for about that many milliseconds
+	public AIWarmup(long argTimeLimit){
+		timeLimit = argTimeLimit;
+	}
+
+	//Runs the warm up on its own daemon thread so the game can start without waiting for it
+	public void start(){
+		Thread thread = new Thread(this, "AI warm up");
+		thread.setDaemon(true);
+		//the screen loading at the same time is more important
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	public void run(){
+		long start = System.nanoTime();
+		AIPlayer[] players = {ConnectFourScreen.createAIPlayer(1), ConnectFourScreen.createAIPlayer(2)};
+		GameBoard[] boards = new GameBoard[POSITIONS.length];
+		for(int i = 0; i < boards.length; i++){
+			boards[i] = new GameBoard(ConnectFourScreen.ROWS, ConnectFourScreen.COLUMNS, ConnectFourScreen.CONNECT_NUMBER);
+			boards[i].setBoard(POSITIONS[i]);
+		}
+		long stop = start+timeLimit*1000000L;
+		int count = 0;
+		//at least one time through so every search has been run
+		do{
+			for(int i = 0; i < boards.length; i++){
+				for(int p = 0; p < players.length; p++){
+					players[p].scoresFor(boards[i]);
+					count++;
+				}
+			}
+		}while(System.nanoTime() < stop);
+		for(int p = 0; p < players.length; p++){
+			players[p].shutdown();
+		}
+		searches = count;
+		millis = (System.nanoTime()-start)/1000000;
+		done = true;
+	}
+
+	public boolean isDone(){
+		return done;
+	}
+
+	//How long the warm up took, once it is done
+	public long getMillis(){
+		return millis;
+	}
+
+	public int getSearches(){
+		return searches;
+	}
+}
@@ -0,0 +1,580 @@
+package com.pennypop.project;
+
+/**
+ * This class is the negamax search with alpha-beta pruning that the AIPlayer
+ * can use instead of the full minimax. It gives the columns the same scores
+ * as AIPlayer.scoresFor would (100 win, 50 tie, 0 loss, -1 full) but it stops
+ * looking at a column as soon as it knows the column can't change the answer.
+ * Columns are tried from the center out since those are usually the best
+ * moves and finding a good move early is what lets the pruning work.
+ *
+ * Below the top the columns are tried in this order: the column from the best
+ * line of the last ply, the column from the TranspositionTable, the two killer
+ * columns that last made the search stop early at the same height, and then
+ * the rest by their history, which counts how often and how deep each column
+ * made the search stop early. Only the order changes, so the scores are the
+ * same with or without them.
+ *
+ * Scores are kept as ints inside the search because they are always whole
+ * numbers, a score for the player is 100 minus the best score of the opponent.
+ *
+ * If a TranspositionTable is set, boards that were already searched to the same
+ * ply are looked up instead of searched again, and the best column stored for
+ * a board is tried first. A board and its mirror image share one entry.
+ *
+ * While the board at the top is the same flipped left to right (like the empty
+ * board) only the left half of the columns is searched, the right half gets
+ * the scores of their mirror columns.
+ *
+ * scoresWithin searches one more ply at a time until the time runs out and
+ * keeps the scores of the last ply that finished. The best line of moves
+ * (principal variation) found by each ply is searched first by the next one.
+ *
+ * Boards at the end of the ply get a 50 unless a BoardEvaluator is set, then
+ * they get its score instead so boards that aren't a win or a loss can still
+ * be told apart.
+ *
+ * @author Erik Gallegos
+ * */
+public class AlphaBetaSearch {
+
+	private static final int WIN = 100;
+	private static final int TIE = 50;
+	private static final int FULL = -1;
+	//lower than any score so it works as "no best yet"
+	private static final int NO_SCORE = -2;
+	//higher than any score, the best possible is 101 when the last move fills the board
+	private static final int MAX_SCORE = 102;
+	//xor'ed into the board hash when it is player 2's move
+	private static final long SIDE_KEY = 0x6A09E667F3BCC909L;
+	//how many boards are searched between looking at the clock
+	private static final int NODES_PER_TIME_CHECK = 1024;
+	//once a history gets this big they are all halved so they can't overflow
+	private static final int MAX_HISTORY = 1 << 24;
+
+	//columns in the order they are searched, center first
+	private int[] moveOrder;
+	//null if boards shouldn't be remembered
+	private TranspositionTable table;
+	//false to only use the best line and the table to order the columns
+	private boolean useKillersAndHistory;
+	//two columns for each height that last made the search stop early
+	private int[][] killers;
+	//[checker][column] how much each column has made the search stop early
+	private int[][] history;
+	//the order the columns are tried in at each height, and the priority of each while sorting
+	private int[][] orderBuffers;
+	private int[] priorities;
+	//null to score every board at the end of the ply as a tie
+	private BoardEvaluator evaluator;
+
+	//best line found from each height of the search, pv[h] starts at index h
+	private int[][] pv;
+	private int[] pvLength;
+	//the best line of the last ply that finished, searched first by the next ply
+	private int[] previousPv;
+	private int previousPvLength;
+
+	//System.nanoTime() when the search has to stop, 0 if there is no time limit
+	private long deadline;
+	private boolean outOfTime;
+	//set from another thread to make the search give up, see stop
+	private volatile boolean stopped;
+	private long nodes;
+	//times the search stopped looking at a board early because of alpha-beta
+	private long cutoffs;
+	//lookups in the table and how many found the board
+	private long tableProbes;
+	private long tableHits;
+	//the deepest ply that finished in the last scoresWithin
+	private int completedPly;
+	//scores of the ply scoresWithin is working on, kept until it finishes
+	private double[] iterationScores;
+
+	public AlphaBetaSearch(){
+		moveOrder = new int[0];
+		pv = new int[0][];
+		pvLength = new int[0];
+		previousPv = new int[0];
+		previousPvLength = 0;
+		iterationScores = new double[0];
+		useKillersAndHistory = true;
+		killers = new int[0][];
+		history = new int[3][0];
+		orderBuffers = new int[0][];
+		priorities = new int[0];
+	}
+
+	public void setTranspositionTable(TranspositionTable argTable){
+		table = argTable;
+	}
+
+	public TranspositionTable getTranspositionTable(){
+		return table;
+	}
+
+	//The scores in a TranspositionTable depend on the evaluator so don't share one between evaluators
+	public void setEvaluator(BoardEvaluator argEvaluator){
+		evaluator = argEvaluator;
+	}
+
+	public BoardEvaluator getEvaluator(){
+		return evaluator;
+	}
+
+	//Turns the killer and history move ordering on or off, it is on by default
+	public void setKillersAndHistory(boolean argUseKillersAndHistory){
+		useKillersAndHistory = argUseKillersAndHistory;
+	}
+
+	/*
+	 * Scores every column for the checker. Columns that are tied for the best score
+	 * get their exact score, any other column is only guaranteed to be lower so
+	 * tieBreakMove picks from the same columns as it would with the full minimax
+	 * */
+	public double[] scoresFor(GameBoard b, int checker, int ply){
+		double[] scores = new double[b.getNumColumns()];
+		scoresFor(b, checker, ply, scores);
+		return scores;
+	}
+
+	//Same as above but puts the scores in the array passed in so nothing is created
+	public void scoresFor(GameBoard b, int checker, int ply, double[] scores){
+		previousPvLength = 0;
+		newRoot(b.getNumColumns(), ply);
+		searchRoot(b, checker, ply, scores);
+	}
+
+	/*
+	 * Searches ply 1, 2, 3... until the time limit is used up or maxPly is reached
+	 * and returns the scores of the deepest ply that finished. Ply 1 is always
+	 * finished so there is always a move to make
+	 * */
+	public double[] scoresWithin(GameBoard b, int checker, int maxPly, long timeLimitMillis){
+		double[] scores = new double[b.getNumColumns()];
+		scoresWithin(b, checker, maxPly, timeLimitMillis, scores);
+		return scores;
+	}
+
+	//Same as above but puts the scores in the array passed in so nothing is created
+	public void scoresWithin(GameBoard b, int checker, int maxPly, long timeLimitMillis, double[] scores){
+		int numColumns = b.getNumColumns();
+		if(iterationScores.length != numColumns){
+			iterationScores = new double[numColumns];
+		}
+		previousPvLength = 0;
+		//once the ply covers every empty spot searching deeper won't change anything
+		int emptySpots = b.getNumRows()*numColumns-b.getMoveCount();
+		newRoot(numColumns, Math.min(maxPly, emptySpots));
+		long stopTime = System.nanoTime()+timeLimitMillis*1000000L;
+		completedPly = Math.min(1, maxPly);
+		searchRoot(b, checker, completedPly, scores);
+		for(int ply = 2; ply <= maxPly && completedPly < emptySpots; ply++){
+			savePreviousPv();
+			deadline = stopTime;
+			searchRoot(b, checker, ply, iterationScores);
+			deadline = 0;
+			if(outOfTime){
+				break;
+			}
+			System.arraycopy(iterationScores, 0, scores, 0, numColumns);
+			completedPly = ply;
+		}
+	}
+
+	public int getCompletedPly(){
+		return completedPly;
+	}
+
+	/*
+	 * Makes a search running on another thread give up the next time it looks at
+	 * the clock, like it ran out of time. Its scores are wrong and have to be
+	 * thrown away. Every search gives up right away until clearStop is called
+	 * */
+	public void stop(){
+		stopped = true;
+	}
+
+	public void clearStop(){
+		stopped = false;
+	}
+
+	//Number of boards looked at since the AlphaBetaSearch was made
+	public long getNodes(){
+		return nodes;
+	}
+
+	//Number of times the search stopped early since the AlphaBetaSearch was made
+	public long getCutoffs(){
+		return cutoffs;
+	}
+
+	//Times the search looked in the TranspositionTable, counted by this search even if the table is shared
+	public long getTableProbes(){
+		return tableProbes;
+	}
+
+	public long getTableHits(){
+		return tableHits;
+	}
+
+	private void searchRoot(GameBoard b, int checker, int ply, double[] scores){
+		int numColumns = b.getNumColumns();
+		setMoveOrder(numColumns);
+		setPvSize(ply+1);
+		outOfTime = false;
+		pvLength[0] = 0;
+		if(table != null){
+			table.newSearch();
+		}
+		nodes++;
+		int opponent = 3-checker;
+		//a board that already has a winner gets the same score for every column
+		boolean hasWinner = b.winsFor(checker) || b.winsFor(opponent);
+		//the right half is the same as the left half so it doesn't need to be searched
+		boolean symmetric = b.isMirrorSymmetric();
+		int pvMove = previousPvLength > 0 ? previousPv[0] : -1;
+		if(symmetric && pvMove > numColumns-1-pvMove){
+			pvMove = numColumns-1-pvMove;
+		}
+		int best = NO_SCORE;
+		//the best column of the last ply goes first, there is no table column at the root
+		for(int i = -2; i < numColumns && !outOfTime; i++){
+			int c = nextColumn(i, pvMove, -1);
+			if(c < 0 || (symmetric && c > numColumns-1-c)){
+				continue;
+			}
+			pvLength[1] = 1;
+			int score;
+			if(b.isColumnFull(c)){
+				score = FULL;
+			}
+			else if(hasWinner){
+				score = b.winsFor(checker) ? WIN : 0;
+			}
+			else if(ply == 0){
+				score = leafScore(b, checker);
+			}
+			else{
+				b.addMove(c, checker);
+				//nobody had won before the move so only the new piece can make a line
+				if(b.lastMoveWins()){
+					score = WIN;
+				}
+				else{
+					//only need to know the exact score if it could tie the best so far
+					score = WIN-negamax(b, opponent, ply-1, WIN-MAX_SCORE, WIN-(best-1), 1, c == pvMove);
+				}
+				b.delMove(c);
+			}
+			if(score > best){
+				best = score;
+				updatePv(0, c);
+			}
+			scores[c] = score;
+		}
+		if(symmetric && !outOfTime){
+			for(int c = numColumns-(numColumns/2); c < numColumns; c++){
+				scores[c] = scores[numColumns-1-c];
+			}
+		}
+	}
+
+	/*
+	 * Gives the exact score of the checker playing the column, or -1 if the column
+	 * is full. Used when columns are searched on their own like in ParallelSearch.
+	 * The board must not have a winner yet
+	 * */
+	public int scoreColumn(GameBoard b, int column, int checker, int ply){
+		setMoveOrder(b.getNumColumns());
+		setPvSize(ply+1);
+		previousPvLength = 0;
+		newRoot(b.getNumColumns(), ply);
+		outOfTime = false;
+		if(b.isColumnFull(column)){
+			return FULL;
+		}
+		if(ply == 0){
+			return leafScore(b, checker);
+		}
+		int score;
+		b.addMove(column, checker);
+		if(b.lastMoveWins()){
+			score = WIN;
+		}
+		else{
+			score = WIN-negamax(b, 3-checker, ply-1, WIN-MAX_SCORE, WIN-NO_SCORE, 1, false);
+		}
+		b.delMove(column);
+		return score;
+	}
+
+	/*
+	 * Returns the best score the checker can get on this board looking ply moves
+	 * ahead. If the score is not between alpha and beta the returned value is only
+	 * a bound, which is all the caller needs to know in that case. Height is how
+	 * many moves from the root this board is and onPv is true if the moves so far
+	 * are the best line of the last ply
+	 * */
+	private int negamax(GameBoard b, int checker, int ply, int alpha, int beta, int height, boolean onPv){
+		pvLength[height] = height;
+		if(outOfTime){
+			return 0;
+		}
+		nodes++;
+		if(nodes%NODES_PER_TIME_CHECK == 0 && (stopped || (deadline != 0 && System.nanoTime() > deadline))){
+			//the scores from here on are wrong but the root throws them away
+			outOfTime = true;
+			return 0;
+		}
+		int numColumns = b.getNumColumns();
+		if(ply == 0){
+			//every open column would get the same score so there is nothing left to look at
+			return b.isFull() ? FULL : leafScore(b, checker);
+		}
+		int opponent = 3-checker;
+		int alphaOriginal = alpha;
+		long key = 0;
+		int tableMove = -1;
+		//the table has the entry of the mirror image, so its columns are flipped
+		boolean mirrored = false;
+		if(table != null){
+			mirrored = b.isCanonicalMirrored();
+			key = checker == 2 ? b.getCanonicalHash() ^ SIDE_KEY : b.getCanonicalHash();
+			long entry = table.probe(key);
+			tableProbes++;
+			if(entry != 0){
+				tableHits++;
+				tableMove = TranspositionTable.getMove(entry);
+				if(mirrored && tableMove >= 0){
+					tableMove = numColumns-1-tableMove;
+				}
+				//a score from a different ply is a different score so it can't be used
+				if(TranspositionTable.getDepth(entry) == ply){
+					int score = TranspositionTable.getScore(entry);
+					int bound = TranspositionTable.getBound(entry);
+					if(bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha)){
+						return score;
+					}
+				}
+			}
+		}
+		int pvMove = onPv && height < previousPvLength ? previousPv[height] : -1;
+		//full columns get a -1 so that is the lowest this board can score
+		int best = FULL;
+		int bestMove = -1;
+		int[] order = orderColumns(checker, height, pvMove, tableMove);
+		for(int i = 0; i < numColumns; i++){
+			int c = order[i];
+			if(b.isColumnFull(c)){
+				continue;
+			}
+			int score;
+			b.addMove(c, checker);
+			if(b.lastMoveWins()){
+				score = WIN;
+				pvLength[height+1] = height+1;
+			}
+			else{
+				score = WIN-negamax(b, opponent, ply-1, WIN-beta, WIN-alpha, height+1, c == pvMove);
+			}
+			b.delMove(c);
+			if(outOfTime){
+				return 0;
+			}
+			if(score > best){
+				best = score;
+				bestMove = c;
+				if(best > alpha){
+					alpha = best;
+					updatePv(height, c);
+				}
+				//the opponent won't let the game get here so stop looking
+				if(alpha >= beta){
+					cutoffs++;
+					rememberCutoff(checker, height, ply, c);
+					break;
+				}
+			}
+		}
+		if(table != null){
+			int bound = TranspositionTable.EXACT;
+			if(best <= alphaOriginal){
+				bound = TranspositionTable.UPPER;
+			}
+			else if(best >= beta){
+				bound = TranspositionTable.LOWER;
+			}
+			if(mirrored && bestMove >= 0){
+				bestMove = numColumns-1-bestMove;
+			}
+			table.store(key, ply, bound, best, bestMove);
+		}
+		return best;
+	}
+
+	//Score of a board nobody has won when there is no ply left to look ahead
+	private int leafScore(GameBoard b, int checker){
+		if(evaluator == null){
+			return TIE;
+		}
+		return evaluator.evaluate(b, checker);
+	}
+
+	/*
+	 * The column to try for step i of the move loop. -2 is the column from the last
+	 * ply's best line, -1 the column from the table and after that the center out
+	 * order. Returns -1 for a step that should be skipped
+	 * */
+	private int nextColumn(int i, int pvMove, int tableMove){
+		if(i == -2){
+			return pvMove;
+		}
+		if(i == -1){
+			return tableMove != pvMove ? tableMove : -1;
+		}
+		int c = moveOrder[i];
+		if(c == pvMove || c == tableMove){
+			return -1;
+		}
+		return c;
+	}
+
+	/*
+	 * Sorts the columns for a board at the height, the column from the last ply's
+	 * best line first, then the table column, the killers and the rest by history.
+	 * Columns with the same priority stay in the center out order
+	 * */
+	private int[] orderColumns(int checker, int height, int pvMove, int tableMove){
+		int[] order = orderBuffers[height];
+		int[] killer = killers[height];
+		int[] checkerHistory = history[checker];
+		for(int i = 0; i < moveOrder.length; i++){
+			int c = moveOrder[i];
+			int priority = 0;
+			if(c == pvMove){
+				priority = Integer.MAX_VALUE;
+			}
+			else if(c == tableMove){
+				priority = Integer.MAX_VALUE-1;
+			}
+			else if(useKillersAndHistory){
+				if(c == killer[0]){
+					priority = Integer.MAX_VALUE-2;
+				}
+				else if(c == killer[1]){
+					priority = Integer.MAX_VALUE-3;
+				}
+				else{
+					priority = checkerHistory[c];
+				}
+			}
+			//insertion sort, there are only a few columns
+			int j = i;
+			while(j > 0 && priorities[j-1] < priority){
+				order[j] = order[j-1];
+				priorities[j] = priorities[j-1];
+				j--;
+			}
+			order[j] = c;
+			priorities[j] = priority;
+		}
+		return order;
+	}
+
+	//The column made the search stop early so it is tried sooner next time
+	private void rememberCutoff(int checker, int height, int ply, int column){
+		if(!useKillersAndHistory){
+			return;
+		}
+		int[] killer = killers[height];
+		if(killer[0] != column){
+			killer[1] = killer[0];
+			killer[0] = column;
+		}
+		//deeper searches stopping early save more boards so they count for more
+		int[] checkerHistory = history[checker];
+		checkerHistory[column] += ply*ply;
+		if(checkerHistory[column] > MAX_HISTORY){
+			ageHistory();
+		}
+	}
+
+	private void ageHistory(){
+		for(int checker = 1; checker < history.length; checker++){
+			for(int c = 0; c < history[checker].length; c++){
+				history[checker][c] /= 2;
+			}
+		}
+	}
+
+	/*
+	 * Gets the killers and history ready for a new board at the top. The killers
+	 * are for the old board so they are cleared, the history is only halved
+	 * since the columns that were good before usually still are
+	 * */
+	private void newRoot(int numColumns, int ply){
+		setMoveOrder(numColumns);
+		setPvSize(ply+1);
+		if(history[1].length != numColumns){
+			history = new int[3][numColumns];
+		}
+		ageHistory();
+		for(int h = 0; h < killers.length; h++){
+			killers[h][0] = -1;
+			killers[h][1] = -1;
+		}
+	}
+
+	//The best line from this height is the column followed by the best line after it
+	private void updatePv(int height, int column){
+		pv[height][height] = column;
+		int length = pvLength[height+1];
+		for(int i = height+1; i < length; i++){
+			pv[height][i] = pv[height+1][i];
+		}
+		pvLength[height] = Math.max(length, height+1);
+	}
+
+	private void savePreviousPv(){
+		previousPvLength = pvLength[0];
+		if(previousPv.length < previousPvLength){
+			previousPv = new int[pv.length];
+		}
+		for(int i = 0; i < previousPvLength; i++){
+			previousPv[i] = pv[0][i];
+		}
+	}
+
+	//Makes sure the best line, killer and order arrays can hold a line of the size
+	private void setPvSize(int size){
+		//one extra for the height below the deepest board
+		size++;
+		if(pv.length >= size && orderBuffers[0].length == moveOrder.length){
+			return;
+		}
+		size = Math.max(size, pv.length);
+		pv = new int[size][size];
+		pvLength = new int[size];
+		killers = new int[size][2];
+		for(int h = 0; h < size; h++){
+			killers[h][0] = -1;
+			killers[h][1] = -1;
+		}
+		orderBuffers = new int[size][moveOrder.length];
+		priorities = new int[moveOrder.length];
+	}
+
+	//Center columns first, then going out to the sides
+	private void setMoveOrder(int numColumns){
+		if(moveOrder.length == numColumns){
+			return;
+		}
+		moveOrder = new int[numColumns];
+		for(int i = 0; i < numColumns; i++){
+			moveOrder[i] = numColumns/2 + (1-2*(i%2))*(i+1)/2;
+		}
+	}
+}
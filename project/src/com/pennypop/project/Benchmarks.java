@@ -0,0 +1,399 @@
+package com.pennypop.project;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class times the parts of GameBoard and AIPlayer the AI spends its time
+ * in, so it is easy to tell if a change made them faster or slower. Each
+ * benchmark is run over a set of positions that are made with
+ * GameBoard.setBoard, first for a while to let the JIT warm up and then a few
+ * times to measure. For each benchmark it prints the time per call, the bytes
+ * allocated per call and how many garbage collections happened while it ran.
+ * At the end the boards the alpha-beta search looks at for all the positions
+ * are counted with and without the killer and history move ordering, and a
+ * burst of boards from the start of random games is given to the AI one at a
+ * time and as a batch.
+ *
+ * Arguments are key=value:
+ *
+ *   positions=file.txt   a file with one setBoard string per line, # for comments
+ *   filter=AIPlayer      only run benchmarks with this in their name
+ *   rows=6 columns=7 connect=4
+ *
+ * Without a file a built in set of 6x7 positions from the empty board to late
+ * in the game is used.
+ *
+ * @author Erik Gallegos
+ * */
+public class Benchmarks {
+
+	//positions for the normal 6x7 board, none of them has a winner
+	private static final String[] DEFAULT_POSITIONS = {
+		"",
+		"3",
+		"32",
+		"2333",
+		"442332",
+		"43234224",
+		"4423440046",
+		"244222236060",
+		"24433353220661",
+		"4223234333245206",
+		"424323052222655140",
+		"22444200266103365041",
+		"344232314163200505011634",
+		"4444433032156535625406025310",
+		"23244310465355620501003146356350",
+		"322344413442431561205006123650136012"
+	};
+
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASURE_ITERATIONS = 5;
+	private static final long ITERATION_MILLIS = 500;
+
+	private int numRows = 6;
+	private int numColumns = 7;
+	private int connectNumber = 4;
+	private String filter = "";
+	private GameBoard[] boards;
+	//results go here so the JIT can't throw the work away
+	private long sink;
+
+	public static void main(String[] args) throws IOException{
+		Benchmarks benchmarks = new Benchmarks();
+		List<String> positions = null;
+		for(int i = 0; i < args.length; i++){
+			String[] option = args[i].split("=", 2);
+			if(option.length != 2){
+				throw new IllegalArgumentException("Options look like key=value: " + args[i]);
+			}
+			if(option[0].equals("positions")){
+				positions = readPositions(option[1]);
+			}
+			else if(option[0].equals("filter")){
+				benchmarks.filter = option[1];
+			}
+			else if(option[0].equals("rows")){
+				benchmarks.numRows = Integer.parseInt(option[1]);
+			}
+			else if(option[0].equals("columns")){
+				benchmarks.numColumns = Integer.parseInt(option[1]);
+			}
+			else if(option[0].equals("connect")){
+				benchmarks.connectNumber = Integer.parseInt(option[1]);
+			}
+			else{
+				throw new IllegalArgumentException("Unknown option: " + option[0]);
+			}
+		}
+		if(positions == null){
+			positions = new ArrayList<String>();
+			for(int i = 0; i < DEFAULT_POSITIONS.length; i++){
+				positions.add(DEFAULT_POSITIONS[i]);
+			}
+		}
+		benchmarks.setPositions(positions);
+		benchmarks.runAll();
+	}
+
+	private static List<String> readPositions(String fileName) throws IOException{
+		List<String> positions = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try{
+			String line;
+			while((line = reader.readLine()) != null){
+				line = line.trim();
+				if(!line.startsWith("#")){
+					positions.add(line);
+				}
+			}
+		}
+		finally{
+			reader.close();
+		}
+		return positions;
+	}
+
+	public void setPositions(List<String> positions){
+		boards = new GameBoard[positions.size()];
+		for(int i = 0; i < boards.length; i++){
+			boards[i] = new GameBoard(numRows, numColumns, connectNumber);
+			boards[i].setBoard(positions.get(i));
+		}
+	}
+
+	public void runAll(){
+		System.out.println(String.format("%-40s %12s %12s %10s %8s", "benchmark", "ns/op", "ops/s", "B/op", "gc"));
+		run(new Benchmark("GameBoard.addMove+delMove"){
+			long run(GameBoard b){
+				long count = 0;
+				for(int c = 0; c < numColumns; c++){
+					if(b.addMove(c, 1)){
+						b.delMove(c);
+						count++;
+					}
+				}
+				return count;
+			}
+		});
+		run(new Benchmark("GameBoard.winsFor"){
+			long run(GameBoard b){
+				return (b.winsFor(1) ? 1 : 0) + (b.winsFor(2) ? 2 : 0);
+			}
+		});
+		run(new Benchmark("GameBoard.lastMoveWins"){
+			long run(GameBoard b){
+				return b.lastMoveWins() ? 1 : 0;
+			}
+		});
+		run(new Benchmark("GameBoard.isFull"){
+			long run(GameBoard b){
+				return b.isFull() ? 1 : 0;
+			}
+		});
+		run(new Benchmark("GameBoard.toString"){
+			long run(GameBoard b){
+				return b.toString().length();
+			}
+		});
+		final long[] words = new long[GameBoard.encodedLength(numRows, numColumns)];
+		run(new Benchmark("GameBoard.encode"){
+			long run(GameBoard b){
+				b.encode(words, 0);
+				return words[0]+words[words.length-1];
+			}
+		});
+		final GameBoard decoded = new GameBoard(numRows, numColumns, connectNumber);
+		run(new Benchmark("GameBoard.setEncoded"){
+			long run(GameBoard b){
+				b.encode(words, 0);
+				decoded.setEncoded(words, 0);
+				return decoded.getHash();
+			}
+		});
+		int[] minimaxPlies = {1, 2, 4};
+		for(int i = 0; i < minimaxPlies.length; i++){
+			run(new ScoresBenchmark("MINIMAX", minimaxPlies[i]));
+		}
+		int[] alphaBetaPlies = {2, 4, 6, 8};
+		for(int i = 0; i < alphaBetaPlies.length; i++){
+			run(new ScoresBenchmark("ALPHABETA", alphaBetaPlies[i]));
+		}
+		run(new NextMoveBenchmark("MINIMAX", 4));
+		run(new NextMoveBenchmark("ALPHABETA", 6));
+		String[] tieBreaks = {"LEFT", "RIGHT", "RANDOM"};
+		for(int i = 0; i < tieBreaks.length; i++){
+			run(new TieBreakBenchmark(tieBreaks[i]));
+		}
+		int[] nodePlies = {6, 8, 10};
+		for(int i = 0; i < nodePlies.length; i++){
+			countNodes(nodePlies[i]);
+		}
+		batchMoves(2000, 10);
+		System.out.println("sink " + sink);
+	}
+
+	//Prints the boards searched over all the positions with and without killers and history
+	private void countNodes(int ply){
+		String name = "AlphaBetaSearch nodes ply " + ply;
+		if(!name.contains(filter)){
+			return;
+		}
+		long[] nodes = new long[2];
+		for(int k = 0; k < 2; k++){
+			AlphaBetaSearch search = new AlphaBetaSearch();
+			search.setKillersAndHistory(k == 1);
+			for(int i = 0; i < boards.length; i++){
+				double[] scores = search.scoresFor(boards[i], boards[i].getMoveCount()%2+1, ply);
+				sink += (long)scores[0];
+			}
+			nodes[k] = search.getNodes();
+		}
+		System.out.println(String.format("%-40s %12d without killers and history, %d with (%.0f%%)", name,
+			nodes[0], nodes[1], 100.0*nodes[1]/nodes[0]));
+	}
+
+	/*
+	 * Makes count boards by playing up to maxMoves random moves, the way a lot of
+	 * games that just started would look, and times the AI finding their moves
+	 * with nextMove one at a time and with nextMoves all together
+	 * */
+	private void batchMoves(int count, int maxMoves){
+		String name = "AIPlayer.nextMoves batch of " + count;
+		if(!name.contains(filter)){
+			return;
+		}
+		Random random = new Random(1);
+		GameBoard[] burst = new GameBoard[count];
+		for(int i = 0; i < count; i++){
+			burst[i] = new GameBoard(numRows, numColumns, connectNumber);
+			GameBoard b = burst[i];
+			//an even number of moves so it is player 1's turn like the AI expects
+			int moves = random.nextInt(maxMoves/2+1)*2;
+			int lastColumn = -1;
+			//a full column or a winning move is skipped, so give up after a few tries
+			for(int tries = 0; b.getMoveCount() < moves && tries < moves*4; tries++){
+				int column = random.nextInt(numColumns);
+				//the colors come from the board so a skipped move doesn't change whose turn it is
+				if(b.addMove(column, b.getMoveCount()%2+1)){
+					if(b.lastMoveWins()){
+						b.delMove(column);
+					}
+					else{
+						lastColumn = column;
+					}
+				}
+			}
+			if(b.getMoveCount()%2 != 0){
+				b.delMove(lastColumn);
+			}
+		}
+		int[] moves = new int[count];
+		long[] nanos = new long[2];
+		//the first two runs warm up the JIT
+		for(int k = 0; k < 4; k++){
+			//a new player each time so neither one starts with a warm table
+			AIPlayer player = new AIPlayer(1, "LEFT", 6, "ALPHABETA");
+			player.setEvaluator(new ThreatEvaluator());
+			long start = System.nanoTime();
+			if(k%2 == 0){
+				for(int i = 0; i < count; i++){
+					moves[i] = player.nextMove(burst[i]);
+				}
+			}
+			else{
+				player.nextMoves(burst, count, moves);
+			}
+			nanos[k%2] = System.nanoTime()-start;
+			for(int i = 0; i < count; i++){
+				sink += moves[i];
+			}
+		}
+		System.out.println(String.format("%-40s %12.0f moves/s one at a time, %.0f moves/s batched", name,
+			count/(nanos[0]/1e9), count/(nanos[1]/1e9)));
+	}
+
+	private void run(Benchmark benchmark){
+		if(!benchmark.name.contains(filter)){
+			return;
+		}
+		for(int i = 0; i < WARMUP_ITERATIONS; i++){
+			runIteration(benchmark);
+		}
+		long ops = 0;
+		long nanos = 0;
+		long bytesBefore = allocatedBytes();
+		long gcBefore = gcCount();
+		for(int i = 0; i < MEASURE_ITERATIONS; i++){
+			long start = System.nanoTime();
+			ops += runIteration(benchmark);
+			nanos += System.nanoTime()-start;
+		}
+		long bytes = allocatedBytes()-bytesBefore;
+		long gcs = gcCount()-gcBefore;
+		String bytesPerOp = bytesBefore < 0 ? "n/a" : String.format("%.1f", (double)bytes/ops);
+		System.out.println(String.format("%-40s %12.1f %12.0f %10s %8d", benchmark.name,
+			(double)nanos/ops, ops/(nanos/1e9), bytesPerOp, gcs));
+	}
+
+	//Calls the benchmark over and over going through the positions, returns the number of calls
+	private long runIteration(Benchmark benchmark){
+		long ops = 0;
+		long end = System.nanoTime()+ITERATION_MILLIS*1000000L;
+		do{
+			for(int i = 0; i < boards.length; i++){
+				sink += benchmark.run(boards[i]);
+			}
+			ops += boards.length;
+		}while(System.nanoTime() < end);
+		return ops;
+	}
+
+	//Bytes allocated by this thread so far, -1 if the JVM can't tell
+	private static long allocatedBytes(){
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean){
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static long gcCount(){
+		long count = 0;
+		List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		for(int i = 0; i < collectors.size(); i++){
+			count += Math.max(0, collectors.get(i).getCollectionCount());
+		}
+		return count;
+	}
+
+	//One thing to time, run is called once per position
+	private abstract static class Benchmark {
+		final String name;
+
+		Benchmark(String argName){
+			name = argName;
+		}
+
+		abstract long run(GameBoard b);
+	}
+
+	private class ScoresBenchmark extends Benchmark {
+		private final AIPlayer player;
+
+		ScoresBenchmark(String searchType, int ply){
+			super("AIPlayer.scoresFor " + searchType + " ply " + ply);
+			player = new AIPlayer(1, "LEFT", ply, searchType);
+		}
+
+		long run(GameBoard b){
+			double[] scores = player.scoresFor(b);
+			return (long)scores[0];
+		}
+	}
+
+	//nextMove reuses its buffers so this should show no bytes per op
+	private class NextMoveBenchmark extends Benchmark {
+		private final AIPlayer player;
+
+		NextMoveBenchmark(String searchType, int ply){
+			super("AIPlayer.nextMove " + searchType + " ply " + ply);
+			player = new AIPlayer(1, "RANDOM", ply, searchType);
+			player.setSeed(1);
+		}
+
+		long run(GameBoard b){
+			return player.nextMove(b);
+		}
+	}
+
+	private class TieBreakBenchmark extends Benchmark {
+		private final AIPlayer player;
+		//the scores of each position, found once before timing
+		private final double[][] scores;
+		private int next;
+
+		TieBreakBenchmark(String tieBreak){
+			super("AIPlayer.tieBreakMove " + tieBreak);
+			player = new AIPlayer(1, tieBreak, 2, "ALPHABETA");
+			player.setSeed(1);
+			scores = new double[boards.length][];
+			for(int i = 0; i < boards.length; i++){
+				scores[i] = player.scoresFor(boards[i]);
+			}
+		}
+
+		long run(GameBoard b){
+			next = (next+1)%scores.length;
+			return player.tieBreakMove(scores[next]);
+		}
+	}
+}
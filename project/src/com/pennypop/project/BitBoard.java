@@ -0,0 +1,186 @@
+package com.pennypop.project;
+
+/**
+ * This class is the bitboard engine that sits behind a GameBoard when the
+ * board is small enough. Each player's pieces are packed into a single long
+ * so adding, deleting and checking for a win are done with shifts and masks
+ * instead of going through a 2d array of GameBoardPiece objects.
+ *
+ * Every column uses numRows+1 bits, the extra bit on top is always empty so
+ * the shifts used for the vertical and diagonal checks can't wrap around
+ * into the next column. Bit 0 is the bottom of column 0.
+ *
+ * @author Erik Gallegos
+ * */
+public class BitBoard {
+
+	//pieces for player 1 and 2, index 0 is not used
+	private final long[] stones;
+	//how many pieces are in each column
+	private final int[] heights;
+	private final int numRows;
+	private final int numColumns;
+	private final int connectNumber;
+	//number of bits used by one column including the empty top bit
+	private final int columnHeight;
+	private int moveCount;
+
+	public BitBoard(int rows, int columns, int argConnectNumber){
+		numRows = rows;
+		numColumns = columns;
+		connectNumber = argConnectNumber;
+		columnHeight = rows+1;
+		stones = new long[3];
+		heights = new int[columns];
+		moveCount = 0;
+	}
+
+	//Copy constructor so a board can be searched without touching the original
+	public BitBoard(BitBoard other){
+		numRows = other.numRows;
+		numColumns = other.numColumns;
+		connectNumber = other.connectNumber;
+		columnHeight = other.columnHeight;
+		stones = other.stones.clone();
+		heights = other.heights.clone();
+		moveCount = other.moveCount;
+	}
+
+	//Makes this the same as the other one, which has to be the same size
+	public void copyFrom(BitBoard other){
+		System.arraycopy(other.stones, 0, stones, 0, stones.length);
+		System.arraycopy(other.heights, 0, heights, 0, heights.length);
+		moveCount = other.moveCount;
+	}
+
+	//A board can only use the bitboard if every column plus its empty top bit fits in a long
+	public static boolean fits(int rows, int columns){
+		return rows > 0 && columns > 0 && (rows+1)*columns <= 64;
+	}
+
+	/*
+	 * Drops a piece for the checker (1 or 2) in the column and returns the row
+	 * it landed on, counting from the top like GameBoard does. Returns -1 if the
+	 * move isn't legal
+	 * */
+	public int addMove(int column, int checker){
+		if(!allowsMove(column)){
+			return -1;
+		}
+		int height = heights[column];
+		stones[checker] |= 1L << (column*columnHeight+height);
+		heights[column] = height+1;
+		moveCount++;
+		return numRows-1-height;
+	}
+
+	/*
+	 * Removes the top piece of the column and returns the row it was on, counting
+	 * from the top. Returns -1 if the column was already empty
+	 * */
+	public int delMove(int column){
+		int height = heights[column];
+		if(height == 0){
+			return -1;
+		}
+		height--;
+		long mask = ~(1L << (column*columnHeight+height));
+		stones[1] &= mask;
+		stones[2] &= mask;
+		heights[column] = height;
+		moveCount--;
+		return numRows-1-height;
+	}
+
+	public boolean allowsMove(int column){
+		//out of range
+		if(column < 0 || column >= numColumns)
+			return false;
+		return heights[column] < numRows;
+	}
+
+	public boolean isColumnFull(int column){
+		return heights[column] >= numRows;
+	}
+
+	public boolean isFull(){
+		return moveCount == numRows*numColumns;
+	}
+
+	public boolean winsFor(int checker){
+		long pieces = stones[checker];
+		//vertical, horizontal and both diagonals
+		return hasLine(pieces, 1) || hasLine(pieces, columnHeight)
+			|| hasLine(pieces, columnHeight-1) || hasLine(pieces, columnHeight+1);
+	}
+
+	/*
+	 * Checks for connectNumber pieces in a row going in one direction. Every
+	 * shift moves the pieces one more spot along the line so whatever is
+	 * left after all the ands is the start of a full line
+	 * */
+	private boolean hasLine(long pieces, int direction){
+		long line = pieces;
+		for(int i = 1; i < connectNumber && line != 0; i++){
+			int shift = direction*i;
+			//the line would go off the board
+			if(shift >= 64){
+				return false;
+			}
+			line &= pieces >>> shift;
+		}
+		return line != 0;
+	}
+
+	/*
+	 * Checks if the top piece of the column is part of a line. Walks both ways from
+	 * the piece in each direction, the empty top bits stop the walk at the edges
+	 * */
+	public boolean winsThrough(int column){
+		if(heights[column] == 0){
+			return false;
+		}
+		int index = column*columnHeight+heights[column]-1;
+		long pieces = ((stones[1] >>> index) & 1) != 0 ? stones[1] : stones[2];
+		return countLine(pieces, index, 1) >= connectNumber
+			|| countLine(pieces, index, columnHeight) >= connectNumber
+			|| countLine(pieces, index, columnHeight-1) >= connectNumber
+			|| countLine(pieces, index, columnHeight+1) >= connectNumber;
+	}
+
+	//Counts the pieces in a line through the index, going both ways in the direction
+	private int countLine(long pieces, int index, int direction){
+		int count = 1;
+		for(int i = index+direction; i < 64 && count < connectNumber && ((pieces >>> i) & 1) != 0; i += direction){
+			count++;
+		}
+		for(int i = index-direction; i >= 0 && count < connectNumber && ((pieces >>> i) & 1) != 0; i -= direction){
+			count++;
+		}
+		return count;
+	}
+
+	//Returns 0 for empty, otherwise the checker in that spot. Rows count from the top
+	public int getColor(int row, int column){
+		long bit = 1L << (column*columnHeight+(numRows-1-row));
+		if((stones[1] & bit) != 0){
+			return 1;
+		}
+		if((stones[2] & bit) != 0){
+			return 2;
+		}
+		return 0;
+	}
+
+	public long getStones(int checker){
+		return stones[checker];
+	}
+
+	public int getHeight(int column){
+		return heights[column];
+	}
+
+	public int getMoveCount(){
+		return moveCount;
+	}
+}
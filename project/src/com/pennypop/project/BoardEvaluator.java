@@ -0,0 +1,19 @@
+package com.pennypop.project;
+
+/**
+ * This interface lets the AIPlayer score a board that nobody has won yet when
+ * it can't look any further ahead. Without one every such board gets a 50, so
+ * the AI can only tell moves apart by the wins and losses it can see.
+ *
+ * The score has to be a whole number from 1 to 99 so it stays between a loss
+ * (0) and a win (100), and a higher score has to be better for the checker.
+ * The same evaluator is called from every thread of the "PARALLEL" search so
+ * it shouldn't keep anything between calls.
+ *
+ * @author Erik Gallegos
+ * */
+public interface BoardEvaluator {
+
+	//Scores the board for the checker, who is the one to move next
+	public int evaluate(GameBoard b, int checker);
+}
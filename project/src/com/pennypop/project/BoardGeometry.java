@@ -0,0 +1,87 @@
+package com.pennypop.project;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * This class holds the lines of the board grid in a Mesh so they are sent
+ * to the graphics card once when the board is made instead of every frame
+ * like a ShapeRenderer does. Drawing the grid is then one call. The lines
+ * are in the same places drawBoard in ConnectFourScreen used to put them,
+ * rowSpace and columnSpace apart starting from the corner of the board.
+ *
+ * @author Erik Gallegos
+ * */
+public class BoardGeometry implements Disposable {
+
+	private static final String VERTEX_SHADER =
+		"attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+		+ "uniform mat4 u_projTrans;\n"
+		+ "void main(){\n"
+		+ "	gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+		+ "}\n";
+	private static final String FRAGMENT_SHADER =
+		"#ifdef GL_ES\n"
+		+ "precision mediump float;\n"
+		+ "#endif\n"
+		+ "uniform vec4 u_color;\n"
+		+ "void main(){\n"
+		+ "	gl_FragColor = u_color;\n"
+		+ "}\n";
+
+	private final Mesh mesh;
+	private final ShaderProgram shader;
+	private final Color color;
+
+	public BoardGeometry(int x, int y, int width, int height, int rows, int columns, Color argColor){
+		color = new Color(argColor);
+		shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+		if(!shader.isCompiled()){
+			throw new IllegalStateException("Board shader didn't compile: " + shader.getLog());
+		}
+		//two points for each line, two numbers for each point
+		int lines = rows+1+columns+1;
+		float[] vertices = new float[lines*4];
+		int next = 0;
+		int rowSpace = height/rows;
+		int columnSpace = width/columns;
+		//the rows in the board
+		for(int i = 0; i <= rows; i++){
+			int lineY = y+i*rowSpace;
+			vertices[next++] = x;
+			vertices[next++] = lineY;
+			vertices[next++] = x+width;
+			vertices[next++] = lineY;
+		}
+		//the columns in the board
+		for(int i = 0; i <= columns; i++){
+			int lineX = x+i*columnSpace;
+			vertices[next++] = lineX;
+			vertices[next++] = y;
+			vertices[next++] = lineX;
+			vertices[next++] = y+height;
+		}
+		mesh = new Mesh(true, lines*2, 0, new VertexAttribute(Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE));
+		mesh.setVertices(vertices);
+	}
+
+	//Draws the grid with the projection of whatever it is drawn with, like a SpriteBatch
+	public void draw(Matrix4 projection){
+		shader.begin();
+		shader.setUniformMatrix("u_projTrans", projection);
+		shader.setUniformf("u_color", color);
+		mesh.render(shader, GL20.GL_LINES);
+		shader.end();
+	}
+
+	public void dispose(){
+		mesh.dispose();
+		shader.dispose();
+	}
+}
@@ -1,15 +1,22 @@
 package com.pennypop.project;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 
@@ -20,6 +27,20 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
  * UI elements are picked. The class renders and draws what is necessary for the
  * Connect 4 game
  * 
+ * The AIPlayer thinks on its own thread with a copy of the board so the
+ * screen keeps drawing while it searches. Its move is put on the board by
+ * render() once it is ready. While the player is deciding the AI ponders the
+ * moves they could make on the same thread, so it can usually answer right
+ * away
+ * 
+ * The pieces are kept in a SpriteCache as they are dropped instead of going
+ * through the whole board every frame. The cache is split into chunks of
+ * PIECES_PER_CACHE pieces, a new piece only rebuilds the chunk it goes in and
+ * drawing is one call per chunk, so big boards don't slow the frame down.
+ * The grid lines are made once in a BoardGeometry. A new piece falls from
+ * the top of the board and goes in the cache when it lands, the fall only
+ * moves one sprite so it doesn't create anything while it is drawn
+ * 
  * @author Erik Gallegos
  *
  */
@@ -36,7 +57,7 @@ public class ConnectFourScreen implements Screen
 	private int connectNumber;
 	
 	private GameBoard gameBoard;
-	private ShapeRenderer boardLineShape;
+	private BoardGeometry boardGeometry;
 	
 	//variables for the rectangle to make the board
 	private int rectangleWidth;
@@ -50,6 +71,28 @@ public class ConnectFourScreen implements Screen
 	private Sprite redPieceSprite;
 	private Sprite yellowPieceSprite;
 	
+	//So these variables can easily be modified to change the board and the AI
+	static final int ROWS = 6;
+	static final int COLUMNS = 7;
+	static final int CONNECT_NUMBER = 4;
+	private static final int PLY_LEVEL = 5;
+	private static final String TIE_BREAKER_STRATEGY = "RANDOM"; 
+	private static final String SEARCH_TYPE = "ALPHABETA";
+	
+	//pieces in each chunk of the pieceCache
+	private static final int PIECES_PER_CACHE = 64;
+	private final SpriteCache pieceCache;
+	//cache id of each chunk, only the last one is still being added to
+	private final int[] pieceCacheIds;
+	//spots of the pieces in the order they were dropped, as row*numColumns+column
+	private final int[] cachedSpots;
+	//pieces that have landed and are in the cache, the ones after them in cachedSpots are still falling
+	private int cachedPieces;
+	private int droppedPieces;
+	//how fast the pieces fall in pixels per second, and the height of the one falling now
+	private static final float DROP_SPEED = 1500f;
+	private float dropY;
+	
 	//Variable that controls whose turn it is
 	private int playerTurn;
 	//Message displayed on game
@@ -61,19 +104,35 @@ public class ConnectFourScreen implements Screen
 	private AIPlayer aiPlayer;
 	//Switch this to false to make a two player game with no AI
 	private final boolean AI = true;
+	//thread the AI searches on and the move it is working on, null if it isn't searching
+	private final ExecutorService aiExecutor;
+	private Future<Integer> aiMove;
+	//told which part of the frame is running
+	private final FrameProfiler profiler;
+	//shared with the other screens, the sprite batch, font and atlas are only released here
+	private final GameAssets assets;
 
 	
 	public ConnectFourScreen(Game game){
 		this.game = game;
-		spriteBatch = new SpriteBatch();
-		numRows = 6;
-		numColumns = 7;
-		connectNumber = 4;
+		profiler = FrameProfiler.of(game);
+		assets = GameAssets.of(game);
+		spriteBatch = assets.getSpriteBatch();
+		numRows = ROWS;
+		numColumns = COLUMNS;
+		connectNumber = CONNECT_NUMBER;
 		gameOver = false;
-		//So these variables can easily be modified to change the AI
-		final int PLY_LEVEL = 5;
-		final String TIE_BREAKER_STRATEGY = "RANDOM"; 
-		aiPlayer = new AIPlayer(2,TIE_BREAKER_STRATEGY,PLY_LEVEL);
+		aiPlayer = createAIPlayer(2);
+		//mapped the first time and shared by every game after that
+		aiPlayer.setOpeningBook(assets.getOpeningBook(numRows, numColumns, connectNumber));
+		aiExecutor = Executors.newSingleThreadExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				//daemon so a search that is still going doesn't keep the game open
+				Thread thread = new Thread(r, "AI player");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		
 		//choosing size and coordinates for rectangle
 		rectangleWidth = 600;
@@ -85,11 +144,10 @@ public class ConnectFourScreen implements Screen
 		
 		gameStage = new Stage(Gdx.graphics.getWidth(),Gdx.graphics.getHeight(),false,spriteBatch);
 		
-		font = new BitmapFont(Gdx.files.internal("font.fnt"),Gdx.files.internal("font.png"),false);
+		font = assets.acquire(GameAssets.FONT, BitmapFont.class);
 		
-		pieceAtlas = new TextureAtlas(Gdx.files.internal("Buttons.pack"));
-		pieceSkin = new Skin(pieceAtlas);
-		pieceSkin.addRegions(pieceAtlas);
+		pieceAtlas = assets.acquire(GameAssets.BUTTONS, TextureAtlas.class);
+		pieceSkin = assets.getButtonSkin();
 
 		redPieceSprite = new Sprite(pieceSkin.getRegion("red"));
 		yellowPieceSprite = new Sprite(pieceSkin.getRegion("yellow"));
@@ -99,15 +157,30 @@ public class ConnectFourScreen implements Screen
 		
 		setGamePieceLocations();
 		setTheBoard(Color.BLACK);
+		
+		pieceCache = new SpriteCache(numRows*numColumns, false);
+		pieceCacheIds = new int[(numRows*numColumns+PIECES_PER_CACHE-1)/PIECES_PER_CACHE];
+		cachedSpots = new int[numRows*numColumns];
+		cachedPieces = 0;
+		droppedPieces = 0;
 	}
 
 	@Override
 	public void dispose() {
-		spriteBatch.dispose();
+		//the board the AI is working on is gone so its ponder or move isn't needed anymore,
+		//stopping it makes the executor's thread finish right away
+		aiPlayer.stopPondering();
+		if(aiMove != null){
+			aiMove.cancel(true);
+			aiMove = null;
+		}
+		aiExecutor.shutdownNow();
+		pieceCache.dispose();
+		boardGeometry.dispose();
+		//the stage doesn't own the shared sprite batch so it leaves it alone
 		gameStage.dispose();
-		font.dispose();
-		pieceAtlas.dispose();
-		pieceSkin.dispose();
+		assets.release(GameAssets.FONT);
+		assets.release(GameAssets.BUTTONS);
 	}
 
 	@Override
@@ -123,18 +196,22 @@ public class ConnectFourScreen implements Screen
 
 	@Override
 	public void render(float delta) {
+		profiler.startPhase(FrameProfiler.UPDATE);
 		gameStage.act(delta);
+		profiler.startPhase(FrameProfiler.DRAW);
 		gameStage.draw();
+		profiler.startPhase(FrameProfiler.UPDATE);
 		//if the game is over and the user clicks then screen should change
 		if(Gdx.input.justTouched() && gameOver){
-			game.setScreen(new MainScreen(game));
+			backToMainScreen();
+			return;
 		}
 		//let the system know when a move was successfully made
 		boolean wasMoveSuccessful = false;
 		//Play the next move. Player or AI
 		wasMoveSuccessful = playerMove();
 		//check for a winner
-		if(wasMoveSuccessful && gameBoard.winsFor(playerTurn)){
+		if(wasMoveSuccessful && gameBoard.lastMoveWins()){
 			turnMessage = "Player " + playerTurn + " Wins!!!";
 			gameOver = true;
 		}
@@ -147,13 +224,15 @@ public class ConnectFourScreen implements Screen
 			//will only switch if move was successful
 			switchPlayers(wasMoveSuccessful);
 		}
+		updateDrop(delta);
+		profiler.startPhase(FrameProfiler.DRAW);
 		//drawing the game board
-		boardLineShape.begin(ShapeType.Line);
-		drawBoard();
-		boardLineShape.end();
+		boardGeometry.draw(spriteBatch.getProjectionMatrix());
 		
-		spriteBatch.begin();
 		drawPieces();
+		
+		spriteBatch.begin();
+		drawDrop();
 		drawFont();
 		spriteBatch.end();
 	}
@@ -239,49 +318,88 @@ public class ConnectFourScreen implements Screen
 	}
 
 	private void setTheBoard(Color lineColor) {
-		boardLineShape = new ShapeRenderer();
-		boardLineShape.setColor(lineColor);
+		boardGeometry = new BoardGeometry(rectangleLocX, rectangleLocY, rectangleWidth, rectangleHeight,
+			numRows, numColumns, lineColor);
 	}
 	
 	private void drawPieces(){
-		GameBoardPiece checkPiece;
-		
- 		for(int r = 0; r < numRows; r++){
-			for(int c = 0; c < numColumns; c++){
-				checkPiece = gameBoard.getGameBoardPiece(r, c); 
-				//if this piece belongs to player one
-				if(checkPiece.getColor() == 1){
-					redPieceSprite.setX(checkPiece.getCoorX());
-					redPieceSprite.setY(checkPiece.getCoorY());
-					redPieceSprite.draw(spriteBatch);
-				}
-				//this piece belongs to player 2
-				else if(checkPiece.getColor() == 2){
-					yellowPieceSprite.setX(checkPiece.getCoorX());
-					yellowPieceSprite.setY(checkPiece.getCoorY());
-					yellowPieceSprite.draw(spriteBatch);
-				}
-			}
+		if(cachedPieces == 0){
+			return;
+		}
+		//same place on the screen as the sprite batch, which the stage sets up
+		pieceCache.setProjectionMatrix(spriteBatch.getProjectionMatrix());
+		//the cache doesn't turn on blending like the sprite batch does, the pieces are round
+		Gdx.gl.glEnable(GL20.GL_BLEND);
+		Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+		pieceCache.begin();
+		int chunks = (cachedPieces+PIECES_PER_CACHE-1)/PIECES_PER_CACHE;
+		for(int i = 0; i < chunks; i++){
+			pieceCache.draw(pieceCacheIds[i]);
 		}
+		pieceCache.end();
+		Gdx.gl.glDisable(GL20.GL_BLEND);
 	}
 	
-	private void drawBoard(){
-		int lineRowStart = rectangleLocY;
-		int rowSpace = rectangleHeight/numRows;
-		//draws the rows in the board
-		for(int i = 0; i <= numRows; i++){
-			boardLineShape.line(rectangleLocX, lineRowStart, rectangleLocX+rectangleWidth, lineRowStart);
-			//moving on to the next row
-			lineRowStart += rowSpace;
-		}
-		int lineColumnStart = rectangleLocX;
-		int columnSpace = rectangleWidth/numColumns;
-		//draws the columns in the board
-		for(int i = 0; i <= numColumns; i++){
-			boardLineShape.line(lineColumnStart, rectangleLocY, lineColumnStart, rectangleLocY+rectangleHeight);
-			//moving on to the next column
-			lineColumnStart += columnSpace;
+	//Starts the piece that was just added falling, it waits if another one is still falling
+	private void dropLastMove(){
+		int column = gameBoard.getLastMoveColumn();
+		//the new piece is the top one in its column
+		int row = 0;
+		while(gameBoard.getColor(row, column) == 0){
+			row++;
+		}
+		if(droppedPieces == cachedPieces){
+			dropY = rectangleLocY+rectangleHeight;
+		}
+		cachedSpots[droppedPieces++] = row*numColumns+column;
+	}
+	
+	//Moves the falling piece down, once it lands it goes in the cache and the next one starts
+	private void updateDrop(float delta){
+		if(cachedPieces == droppedPieces){
+			return;
+		}
+		dropY -= DROP_SPEED*delta;
+		int spot = cachedSpots[cachedPieces];
+		if(dropY <= gameBoard.getGameBoardPiece(spot/numColumns, spot%numColumns).getCoorY()){
+			cachePiece();
+			dropY = rectangleLocY+rectangleHeight;
+		}
+	}
+	
+	private void drawDrop(){
+		if(cachedPieces == droppedPieces){
+			return;
+		}
+		int spot = cachedSpots[cachedPieces];
+		GameBoardPiece piece = gameBoard.getGameBoardPiece(spot/numColumns, spot%numColumns);
+		Sprite sprite = piece.getColor() == 1 ? redPieceSprite : yellowPieceSprite;
+		sprite.setPosition(piece.getCoorX(), dropY);
+		sprite.draw(spriteBatch);
+	}
+	
+	/*
+	 * Puts the piece that just landed in the cache. Only the chunk it goes in
+	 * is made again, the chunks before it are full and never change
+	 * */
+	private void cachePiece(){
+		int chunk = cachedPieces/PIECES_PER_CACHE;
+		int first = chunk*PIECES_PER_CACHE;
+		cachedPieces++;
+		//the chunk being added to is always the last cache made so it can be made again with more pieces
+		if(cachedPieces-1 == first){
+			pieceCache.beginCache();
+		}
+		else{
+			pieceCache.beginCache(pieceCacheIds[chunk]);
+		}
+		for(int i = first; i < cachedPieces; i++){
+			GameBoardPiece piece = gameBoard.getGameBoardPiece(cachedSpots[i]/numColumns, cachedSpots[i]%numColumns);
+			//if this piece belongs to player one it is red, otherwise yellow
+			Sprite sprite = piece.getColor() == 1 ? redPieceSprite : yellowPieceSprite;
+			pieceCache.add(sprite, piece.getCoorX(), piece.getCoorY(), sprite.getWidth(), sprite.getHeight());
 		}
+		pieceCacheIds[chunk] = pieceCache.endCache();
 	}
 	
 	private boolean addChecker(int xCoor,int yCoor){
@@ -316,9 +434,19 @@ public class ConnectFourScreen implements Screen
 		}
 		//uses the gameBoard's method to see if it can add the piece
 		wasMoveSuccessful = gameBoard.addMove(columnLocation, playerTurn);
+		if(wasMoveSuccessful){
+			dropLastMove();
+		}
 		return wasMoveSuccessful;		
 	}
 	
+	//Goes back to the MainScreen once the game is over, nothing can use this screen after it
+	private void backToMainScreen(){
+		game.setScreen(new MainScreen(game));
+		//nothing else has this screen so it has to be disposed here
+		dispose();
+	}
+	
 	private void switchPlayers(boolean wasMoveSuccessful){
 		if(!wasMoveSuccessful){
 			return;
@@ -344,17 +472,21 @@ public class ConnectFourScreen implements Screen
 			if(Gdx.input.justTouched()){
 				wasMoveSuccessful = addChecker(Gdx.input.getX(),Gdx.input.getY());	
 			}
+			//the AI can stop guessing, it finishes pondering before it starts on its move
+			if(AI && wasMoveSuccessful){
+				aiPlayer.stopPondering();
+			}
 		}
 		else if(AI && playerTurn == 2){
-			int columnLocation = aiPlayer.nextMove(gameBoard);
-			wasMoveSuccessful = gameBoard.addMove(columnLocation, playerTurn);
+			profiler.startPhase(FrameProfiler.AI);
+			wasMoveSuccessful = aiMove();
+			profiler.startPhase(FrameProfiler.UPDATE);
+			if(aiMove != null){
+				profiler.markAiSearching();
+			}
 		}
 		else{
-			//If AI is deactivated then there is input for player 2
-			if(Gdx.input.justTouched() && gameOver){
-				this.dispose();
-				game.setScreen(new MainScreen(game));
-			}
+			//If AI is deactivated then there is input for player 2, render already left the screen if the game is over
 			if(Gdx.input.justTouched()){
 				wasMoveSuccessful = addChecker(Gdx.input.getX(),Gdx.input.getY());	
 			}
@@ -362,5 +494,63 @@ public class ConnectFourScreen implements Screen
 		return wasMoveSuccessful;
 	}
 	
+	/*
+	 * Starts the AI on a copy of the board the first time it is called for a turn
+	 * and adds its move once it is done. Returns false while the AI is still thinking
+	 * */
+	private boolean aiMove(){
+		if(aiMove == null){
+			final GameBoard snapshot = new GameBoard(gameBoard);
+			aiMove = aiExecutor.submit(new Callable<Integer>(){
+				public Integer call(){
+					return Integer.valueOf(aiPlayer.nextMove(snapshot));
+				}
+			});
+			return false;
+		}
+		if(!aiMove.isDone()){
+			return false;
+		}
+		int columnLocation;
+		try{
+			columnLocation = aiMove.get().intValue();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		catch(ExecutionException e){
+			throw new RuntimeException("AI player failed", e.getCause());
+		}
+		finally{
+			aiMove = null;
+		}
+		if(!gameBoard.addMove(columnLocation, playerTurn)){
+			return false;
+		}
+		dropLastMove();
+		if(!gameBoard.lastMoveWins() && !gameBoard.isFull()){
+			ponder();
+		}
+		return true;
+	}
+	
+	//Has the AI think about the player's possible moves on its thread until the player moves
+	private void ponder(){
+		final GameBoard snapshot = new GameBoard(gameBoard);
+		aiExecutor.submit(new Runnable(){
+			public void run(){
+				aiPlayer.ponder(snapshot);
+			}
+		});
+	}
+	
+	//The AI the player plays against, AIWarmup uses the same one to get it ready before the first game
+	static AIPlayer createAIPlayer(int checker){
+		AIPlayer player = new AIPlayer(checker,TIE_BREAKER_STRATEGY,PLY_LEVEL,SEARCH_TYPE);
+		//scores the boards at the end of the ply by their open lines instead of all 50
+		player.setEvaluator(new ThreatEvaluator());
+		return player;
+	}
 	
 }
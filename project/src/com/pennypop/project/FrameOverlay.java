@@ -0,0 +1,54 @@
+package com.pennypop.project;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * This class draws what the FrameProfiler measured in the corner of the
+ * screen, on top of whatever screen is showing. The text is only made again
+ * a few times a second so the overlay itself doesn't show up in the numbers.
+ *
+ * @author Erik Gallegos
+ * */
+public class FrameOverlay implements Disposable {
+
+	private static final float REFRESH_SECONDS = 0.5f;
+
+	private final SpriteBatch spriteBatch;
+	//the font that comes with LibGDX so the overlay doesn't need any assets
+	private final BitmapFont font;
+	private final StringBuilder text;
+	private float sinceRefresh;
+
+	public FrameOverlay(){
+		spriteBatch = new SpriteBatch();
+		font = new BitmapFont();
+		font.setColor(Color.BLACK);
+		text = new StringBuilder(256);
+		sinceRefresh = REFRESH_SECONDS;
+	}
+
+	public void draw(FrameProfiler profiler, float delta){
+		sinceRefresh += delta;
+		if(sinceRefresh >= REFRESH_SECONDS){
+			sinceRefresh = 0;
+			text.setLength(0);
+			profiler.describe(text);
+		}
+		spriteBatch.begin();
+		font.drawMultiLine(spriteBatch, text, 10, Gdx.graphics.getHeight()-10);
+		spriteBatch.end();
+	}
+
+	public void resize(int width, int height){
+		spriteBatch.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
+	}
+
+	public void dispose(){
+		spriteBatch.dispose();
+		font.dispose();
+	}
+}
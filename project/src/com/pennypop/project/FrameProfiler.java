@@ -0,0 +1,292 @@
+package com.pennypop.project;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+
+import com.badlogic.gdx.Game;
+
+/**
+ * This class times every frame on the render thread so it is possible to
+ * tell where a slow frame came from. ProjectApplication starts and ends the
+ * frames and the screens say which phase they are in with startPhase, the
+ * time until the next startPhase goes to that phase:
+ *
+ *   UPDATE  acting on input and moving the game along
+ *   AI      starting the AI's search and picking up its move
+ *   DRAW    everything that is drawn
+ *
+ * The AI searches on its own thread so its search isn't in the frame time,
+ * but the frames it was searching during are counted, and the garbage
+ * collections are for the whole program so the AI's show up too. The bytes
+ * allocated are only the render thread's.
+ *
+ * The frames are added up over windows of WINDOW_SECONDS, with a histogram
+ * of the frame times. With a log file set every window is added to it as a
+ * line of comma separated values, the first line of the file says what
+ * each value is.
+ *
+ * @author Erik Gallegos
+ * */
+public class FrameProfiler {
+
+	public static final int UPDATE = 0;
+	public static final int AI = 1;
+	public static final int DRAW = 2;
+	private static final String[] PHASE_NAMES = {"update", "ai", "draw"};
+	private static final int WINDOW_SECONDS = 10;
+	//upper end of each histogram bucket in ms, the last bucket has every frame slower than them
+	private static final double[] BUCKET_MILLIS = {2, 4, 8, 12, 16.7, 20, 25, 33.3, 50, 100};
+
+	private final ThreadMXBean threads;
+	//false if this JVM can't say how much a thread allocated
+	private final boolean countsAllocations;
+	private final List<GarbageCollectorMXBean> collectors;
+
+	private long frameStart;
+	private long phaseStart;
+	private int phase;
+	private long allocatedAtStart;
+	//the frame being timed
+	private final long[] framePhaseNanos = new long[PHASE_NAMES.length];
+	private boolean aiSearching;
+
+	//the last frame, for the overlay
+	private long lastFrameNanos;
+	private final long[] lastPhaseNanos = new long[PHASE_NAMES.length];
+	private long lastAllocated;
+
+	//added up since the window started
+	private long windowStart;
+	private int windowFrames;
+	private int windowAiFrames;
+	private final long[] windowPhaseNanos = new long[PHASE_NAMES.length];
+	private long windowMaxNanos;
+	private long windowAllocated;
+	private long windowGcCountStart;
+	private long windowGcMillisStart;
+	private final int[] histogram = new int[BUCKET_MILLIS.length+1];
+
+	//the last finished window, for the overlay
+	private int lastWindowFrames;
+	private long lastWindowMaxNanos;
+	private long lastWindowAllocated;
+	private long lastWindowGcCount;
+	private long lastWindowGcMillis;
+	private double lastWindowSeconds;
+
+	private File logFile;
+
+	public FrameProfiler(){
+		threads = ManagementFactory.getThreadMXBean();
+		countsAllocations = threads instanceof com.sun.management.ThreadMXBean
+			&& ((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported();
+		collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		windowStart = System.nanoTime();
+		windowGcCountStart = gcCount();
+		windowGcMillisStart = gcMillis();
+	}
+
+	//The profiler of the game if it is the ProjectApplication, otherwise one that nobody looks at
+	public static FrameProfiler of(Game game){
+		if(game instanceof ProjectApplication){
+			return ((ProjectApplication)game).getFrameProfiler();
+		}
+		return new FrameProfiler();
+	}
+
+	/*
+	 * Adds every window to the file from now on, null to stop. A new file gets
+	 * the line naming the values first
+	 * */
+	public void setLogFile(File file){
+		logFile = file;
+		if(file != null && !file.exists()){
+			StringBuilder header = new StringBuilder("time,frames,ai_frames");
+			for(int i = 0; i < PHASE_NAMES.length; i++){
+				header.append(',').append(PHASE_NAMES[i]).append("_ms");
+			}
+			header.append(",max_frame_ms,allocated_bytes,gc_count,gc_ms");
+			for(int i = 0; i < BUCKET_MILLIS.length; i++){
+				header.append(",frames_le_").append(BUCKET_MILLIS[i]);
+			}
+			header.append(",frames_slower");
+			writeLine(header.toString());
+		}
+	}
+
+	//Called at the start of the frame, the time until the first startPhase is drawing
+	public void beginFrame(){
+		frameStart = System.nanoTime();
+		phaseStart = frameStart;
+		phase = DRAW;
+		aiSearching = false;
+		for(int i = 0; i < framePhaseNanos.length; i++){
+			framePhaseNanos[i] = 0;
+		}
+		allocatedAtStart = allocatedBytes();
+	}
+
+	public void startPhase(int argPhase){
+		long now = System.nanoTime();
+		framePhaseNanos[phase] += now-phaseStart;
+		phaseStart = now;
+		phase = argPhase;
+	}
+
+	//The AI was searching on its thread during this frame
+	public void markAiSearching(){
+		aiSearching = true;
+	}
+
+	public void endFrame(){
+		long now = System.nanoTime();
+		framePhaseNanos[phase] += now-phaseStart;
+		lastFrameNanos = now-frameStart;
+		System.arraycopy(framePhaseNanos, 0, lastPhaseNanos, 0, framePhaseNanos.length);
+		lastAllocated = countsAllocations ? allocatedBytes()-allocatedAtStart : 0;
+		windowFrames++;
+		if(aiSearching){
+			windowAiFrames++;
+		}
+		for(int i = 0; i < framePhaseNanos.length; i++){
+			windowPhaseNanos[i] += framePhaseNanos[i];
+		}
+		windowMaxNanos = Math.max(windowMaxNanos, lastFrameNanos);
+		windowAllocated += lastAllocated;
+		histogram[bucket(lastFrameNanos)]++;
+		if(now-windowStart >= WINDOW_SECONDS*1000000000L){
+			endWindow(now);
+		}
+	}
+
+	private static int bucket(long nanos){
+		double millis = nanos/1e6;
+		for(int i = 0; i < BUCKET_MILLIS.length; i++){
+			if(millis <= BUCKET_MILLIS[i]){
+				return i;
+			}
+		}
+		return BUCKET_MILLIS.length;
+	}
+
+	//Keeps the totals of the window for the overlay, writes it to the log and starts a new one
+	private void endWindow(long now){
+		long gcCount = gcCount();
+		long gcMillis = gcMillis();
+		lastWindowFrames = windowFrames;
+		lastWindowMaxNanos = windowMaxNanos;
+		lastWindowAllocated = windowAllocated;
+		lastWindowGcCount = gcCount-windowGcCountStart;
+		lastWindowGcMillis = gcMillis-windowGcMillisStart;
+		lastWindowSeconds = (now-windowStart)/1e9;
+		if(logFile != null){
+			StringBuilder line = new StringBuilder();
+			line.append(System.currentTimeMillis()).append(',').append(windowFrames).append(',').append(windowAiFrames);
+			for(int i = 0; i < windowPhaseNanos.length; i++){
+				line.append(',').append(String.format(Locale.US, "%.3f", windowPhaseNanos[i]/1e6/Math.max(1, windowFrames)));
+			}
+			line.append(',').append(String.format(Locale.US, "%.3f", windowMaxNanos/1e6));
+			line.append(',').append(countsAllocations ? windowAllocated : -1);
+			line.append(',').append(lastWindowGcCount).append(',').append(lastWindowGcMillis);
+			for(int i = 0; i < histogram.length; i++){
+				line.append(',').append(histogram[i]);
+			}
+			writeLine(line.toString());
+		}
+		windowStart = now;
+		windowFrames = 0;
+		windowAiFrames = 0;
+		for(int i = 0; i < windowPhaseNanos.length; i++){
+			windowPhaseNanos[i] = 0;
+		}
+		windowMaxNanos = 0;
+		windowAllocated = 0;
+		windowGcCountStart = gcCount;
+		windowGcMillisStart = gcMillis;
+		for(int i = 0; i < histogram.length; i++){
+			histogram[i] = 0;
+		}
+	}
+
+	private void writeLine(String line){
+		try{
+			PrintWriter output = new PrintWriter(new FileWriter(logFile, true));
+			try{
+				output.println(line);
+			}
+			finally{
+				output.close();
+			}
+		}
+		catch(IOException e){
+			//the game is more important than the log
+			System.out.println("Frame log couldn't be written: " + e.getMessage());
+			logFile = null;
+		}
+	}
+
+	private long allocatedBytes(){
+		if(!countsAllocations){
+			return 0;
+		}
+		return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private long gcCount(){
+		long count = 0;
+		for(int i = 0; i < collectors.size(); i++){
+			count += Math.max(0, collectors.get(i).getCollectionCount());
+		}
+		return count;
+	}
+
+	private long gcMillis(){
+		long millis = 0;
+		for(int i = 0; i < collectors.size(); i++){
+			millis += Math.max(0, collectors.get(i).getCollectionTime());
+		}
+		return millis;
+	}
+
+	/*
+	 * Writes what the overlay shows into the builder: the last frame split into
+	 * its phases and the last finished window
+	 * */
+	public void describe(StringBuilder text){
+		text.append("frame ");
+		appendMillis(text, lastFrameNanos);
+		for(int i = 0; i < PHASE_NAMES.length; i++){
+			text.append(i == 0 ? " (" : " ").append(PHASE_NAMES[i]).append(' ');
+			appendMillis(text, lastPhaseNanos[i]);
+		}
+		text.append(") ms, ");
+		if(countsAllocations){
+			text.append(lastAllocated).append(" B allocated");
+		}
+		text.append('\n');
+		if(lastWindowFrames == 0){
+			text.append("first ").append(WINDOW_SECONDS).append(" s not done yet");
+			return;
+		}
+		text.append("last ").append(WINDOW_SECONDS).append(" s: ").append((int)(lastWindowFrames/lastWindowSeconds))
+			.append(" fps, max ");
+		appendMillis(text, lastWindowMaxNanos);
+		text.append(" ms, ").append(lastWindowGcCount).append(" gc (").append(lastWindowGcMillis).append(" ms)");
+		if(countsAllocations){
+			text.append(", ").append(lastWindowAllocated/Math.max(1, lastWindowFrames)).append(" B/frame");
+		}
+	}
+
+	//Milliseconds with one decimal without going through a double
+	private static void appendMillis(StringBuilder text, long nanos){
+		long tenths = nanos/100000;
+		text.append(tenths/10).append('.').append(tenths%10);
+	}
+}
@@ -0,0 +1,132 @@
+package com.pennypop.project;
+
+import java.io.IOException;
+
+import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * This class holds the textures, fonts and sounds the screens share so they
+ * are only loaded once instead of every time a screen is made. It is owned
+ * by ProjectApplication, which queues everything with preload when the game
+ * starts and loads it a bit every frame with update.
+ *
+ * The files are kept in an AssetManager, which counts how many times each
+ * one was acquired. A screen acquires what it uses when it is made and
+ * releases it in dispose, a file is only unloaded once nothing holds it.
+ * Since the preload holds everything until the game closes going back and
+ * forth between screens doesn't load anything.
+ *
+ * The SpriteBatch and the Skin of the buttons aren't files so they are just
+ * made once here and the screens must not dispose them. The OpeningBook is
+ * mapped once too and shared by every AIPlayer, since it is only read.
+ *
+ * @author Erik Gallegos
+ * */
+public class GameAssets implements Disposable {
+
+	public static final String BUTTONS = "Buttons.pack";
+	public static final String FONT = "font.fnt";
+	public static final String CLICK_SOUND = "button_click.wav";
+	//how long update keeps loading each frame, a step at a time would take a frame for every step
+	private static final int LOAD_MILLIS = 12;
+
+	private final AssetManager manager;
+	private final SpriteBatch spriteBatch;
+	//made from the BUTTONS atlas the first time it is asked for
+	private Skin buttonSkin;
+	//the book for the board size of openingBookName, null if there isn't one
+	private OpeningBook openingBook;
+	private String openingBookName;
+
+	public GameAssets(){
+		manager = new AssetManager();
+		spriteBatch = new SpriteBatch();
+	}
+
+	//The assets of the game, the screens are always made with the ProjectApplication
+	public static GameAssets of(Game game){
+		if(!(game instanceof ProjectApplication)){
+			throw new IllegalArgumentException("The screens need the ProjectApplication for their assets");
+		}
+		return ((ProjectApplication)game).getAssets();
+	}
+
+	//Queues everything the screens use, it is loaded by calling update
+	public void preload(){
+		manager.load(BUTTONS, TextureAtlas.class);
+		manager.load(FONT, BitmapFont.class);
+		manager.load(CLICK_SOUND, Sound.class);
+	}
+
+	//Loads what is queued for up to LOAD_MILLIS, returns true once everything is loaded
+	public boolean update(){
+		return manager.update(LOAD_MILLIS);
+	}
+
+	//How much of what is queued has been loaded, from 0 to 1
+	public float getProgress(){
+		return manager.getProgress();
+	}
+
+	/*
+	 * Gives the file, loading it first if nothing holds it. Every acquire needs a
+	 * release once the asset isn't used anymore
+	 * */
+	public <T> T acquire(String fileName, Class<T> type){
+		//if it is already loaded this only adds one to the count
+		manager.load(fileName, type);
+		manager.finishLoading();
+		return manager.get(fileName, type);
+	}
+
+	public void release(String fileName){
+		manager.unload(fileName);
+	}
+
+	public SpriteBatch getSpriteBatch(){
+		return spriteBatch;
+	}
+
+	//The skin of the BUTTONS atlas, only good while something holds the atlas
+	public Skin getButtonSkin(){
+		if(buttonSkin == null){
+			buttonSkin = new Skin(manager.get(BUTTONS, TextureAtlas.class));
+		}
+		return buttonSkin;
+	}
+
+	//The book OpeningBookBuilder made for this size of board, null if it hasn't made one
+	public OpeningBook getOpeningBook(int rows, int columns, int connectNumber){
+		String name = OpeningBook.fileName(rows, columns, connectNumber);
+		if(!name.equals(openingBookName)){
+			openingBookName = name;
+			openingBook = null;
+			FileHandle bookFile = Gdx.files.local(name);
+			if(bookFile.exists()){
+				try{
+					openingBook = OpeningBook.load(bookFile.file());
+				}
+				catch(IOException e){
+					//the AI can still search every move without it
+					System.out.println("Opening book couldn't be loaded: " + e.getMessage());
+				}
+			}
+		}
+		return openingBook;
+	}
+
+	//Unloads everything, the skin isn't disposed since that would dispose the atlas a second time
+	public void dispose(){
+		manager.dispose();
+		spriteBatch.dispose();
+	}
+}
@@ -6,40 +6,249 @@ package com.pennypop.project;
  * GameBoard pieces. The rows and columns can be can be set as well as
  * the number of pieces needed to win the game
  * 
+ * If the board is small enough to fit in a long (like the normal 6x7 board)
+ * the pieces are kept in a BitBoard instead, which is a lot faster for the AI.
+ * The 2d array is then only made when the screen asks for the pieces
+ * 
+ * The board also keeps a Zobrist hash of the pieces that is updated on every
+ * addMove and delMove, so the AI can recognize a board it has already seen.
+ * A second hash of the board flipped left to right is kept too, since a board
+ * and its mirror image are just as good, so caches can use the same key for
+ * both (see getCanonicalHash).
+ * The moves are remembered in order so lastMoveWins only has to look at the
+ * lines going through the last piece instead of the whole board
+ * 
+ * With threat counting turned on the board also keeps a ThreatCounter up to
+ * date, which the ThreatEvaluator uses to score boards for the AI
+ * 
+ * A board can be written as a few longs with encode and read back with
+ * setEncoded, which is what PositionWriter and PositionReader use to store
+ * lots of boards in a file
+ * 
  * @author Erik Gallegos
  * */
 public class GameBoard {
 	
 	private GameBoardPiece[][] board;
+	//used instead of the 2d array when the board fits, null otherwise
+	private BitBoard bits;
 	private int numRows;
 	private int numColumns;
 	private int connectNumber;
+	//Zobrist hash of the pieces on the board, see pieceKey
+	private long hash;
+	//Zobrist hash of the board flipped left to right
+	private long mirrorHash;
+	//spots of the pieces in the order they were added, as row*numColumns+column
+	private int[] moveHistory;
+	private int moveCount;
+	//open windows of each player, null unless threat counting is on
+	private ThreatCounter threats;
 	
 	public GameBoard(int rows, int columns,int argConnectNumber){
 		numRows = rows;
 		numColumns = columns;
 		connectNumber = argConnectNumber;
-		board = new GameBoardPiece[rows][columns];
+		//start from the size of the board so boards of different sizes don't share hashes
+		hash = mix(((long)rows << 40) | ((long)columns << 20) | argConnectNumber);
+		mirrorHash = hash;
+		moveHistory = new int[rows*columns];
+		moveCount = 0;
+		if(BitBoard.fits(rows, columns)){
+			bits = new BitBoard(rows, columns, argConnectNumber);
+		}
+		else{
+			board = createPieces();
+		}
+	}
+	
+	//Makes a copy of the board, used to give each AI thread its own board to search
+	public GameBoard(GameBoard other){
+		numRows = other.numRows;
+		numColumns = other.numColumns;
+		connectNumber = other.connectNumber;
+		hash = other.hash;
+		mirrorHash = other.mirrorHash;
+		moveHistory = other.moveHistory.clone();
+		moveCount = other.moveCount;
+		if(other.threats != null){
+			threats = new ThreatCounter(other.threats);
+		}
+		if(other.bits != null){
+			bits = new BitBoard(other.bits);
+		}
+		else{
+			board = createPieces();
+			for(int r = 0 ;r < numRows; r++){
+				for(int c = 0; c < numColumns; c++){
+					board[r][c].setColor(other.board[r][c].getColor());
+				}
+			}
+		}
+	}
+	
+	/*
+	 * Makes this board the same as the other one without creating anything, so
+	 * the AI can keep one board to search on. Both have to be the same size. The
+	 * threat counting stays the way it was on this board
+	 * */
+	public void copyFrom(GameBoard other){
+		if(other.numRows != numRows || other.numColumns != numColumns || other.connectNumber != connectNumber){
+			throw new IllegalArgumentException("Boards can only be copied to a board of the same size");
+		}
+		hash = other.hash;
+		mirrorHash = other.mirrorHash;
+		System.arraycopy(other.moveHistory, 0, moveHistory, 0, moveHistory.length);
+		moveCount = other.moveCount;
+		if(bits != null){
+			bits.copyFrom(other.bits);
+		}
+		else{
+			for(int r = 0 ;r < numRows; r++){
+				for(int c = 0; c < numColumns; c++){
+					board[r][c].setColor(other.board[r][c].getColor());
+				}
+			}
+		}
+		if(threats != null){
+			threats.countAll(this);
+		}
+	}
+	
+	private GameBoardPiece[][] createPieces(){
+		GameBoardPiece[][] pieces = new GameBoardPiece[numRows][numColumns];
 		for(int r = 0 ;r < numRows; r++){
 			for(int c = 0; c < numColumns; c++){
-				board[r][c] = new GameBoardPiece(0,r,c);		
+				pieces[r][c] = new GameBoardPiece(0,r,c);		
 			}	
 		}
+		return pieces;
 	}
 	
 	public GameBoardPiece getGameBoardPiece(int row, int column){
+		if(bits != null){
+			//the pieces are only needed for drawing so make them the first time they are asked for
+			if(board == null){
+				board = createPieces();
+			}
+			board[row][column].setColor(bits.getColor(row, column));
+		}
 		return board[row][column];
 	}
 	
+	//The bits of the pieces, null if the board is too big for a BitBoard
+	public BitBoard getBitBoard(){
+		return bits;
+	}
+	
+	//Returns 0 for an empty spot, otherwise the checker of the piece there
+	public int getColor(int row, int column){
+		if(bits != null){
+			return bits.getColor(row, column);
+		}
+		return board[row][column].getColor();
+	}
+	
 	public String toString(){
-		String str = "";
+		StringBuilder str = new StringBuilder(numRows*(2*numColumns+1));
 		for(int r = 0 ;r < numRows; r++){
 			for(int c = 0; c < numColumns; c++){
-				str += board[r][c].getColor()+" ";	
+				str.append(getColor(r, c)).append(' ');	
 			}
-			str += "\n";
+			str.append('\n');
 		}
-		return str;
+		return str.toString();
+	}
+	
+	/*
+	 * The number of longs encode uses for a board of this size. Each player gets
+	 * one bit per spot, so the normal 6x7 board is one long for each player
+	 * */
+	public static int encodedLength(int rows, int columns){
+		return 2*((rows*columns+63)/64);
+	}
+	
+	/*
+	 * Writes the pieces into encodedLength longs of the array starting at the
+	 * offset, first the longs for player 1 and then the ones for player 2.
+	 * Spot column*numRows+height has its bit set if the player has a piece there,
+	 * with height counting from the bottom of the column
+	 * */
+	public void encode(long[] words, int offset){
+		int perPlayer = encodedLength(numRows, numColumns)/2;
+		if(bits != null && perPlayer == 1){
+			//the bitboard already has a bit per spot, the empty top bits just have to be squeezed out
+			long columnMask = (1L << numRows)-1;
+			long first = 0;
+			long second = 0;
+			for(int c = 0; c < numColumns; c++){
+				int shift = c*(numRows+1);
+				first |= ((bits.getStones(1) >>> shift) & columnMask) << (c*numRows);
+				second |= ((bits.getStones(2) >>> shift) & columnMask) << (c*numRows);
+			}
+			words[offset] = first;
+			words[offset+1] = second;
+			return;
+		}
+		for(int i = 0; i < 2*perPlayer; i++){
+			words[offset+i] = 0;
+		}
+		for(int c = 0; c < numColumns; c++){
+			for(int h = 0; h < numRows; h++){
+				int color = getColor(numRows-1-h, c);
+				if(color == 0){
+					//nothing can be on top of an empty spot
+					break;
+				}
+				int spot = c*numRows+h;
+				words[offset+(color-1)*perPlayer+(spot >>> 6)] |= 1L << spot;
+			}
+		}
+	}
+	
+	/*
+	 * Replaces the pieces on the board with the ones written by encode for a board
+	 * of the same size. The order the pieces were played in isn't kept, so after
+	 * this the last move is just the top piece of the last column that has one.
+	 * Throws an IllegalArgumentException if a piece would be floating or both
+	 * players have a piece in the same spot
+	 * */
+	public void setEncoded(long[] words, int offset){
+		//taking off the pieces in the reverse order they were added only ever takes the top of a column
+		while(moveCount > 0){
+			delMove(moveHistory[moveCount-1]%numColumns);
+		}
+		int perPlayer = encodedLength(numRows, numColumns)/2;
+		for(int c = 0; c < numColumns; c++){
+			for(int h = 0; h < numRows; h++){
+				int spot = c*numRows+h;
+				long bit = 1L << spot;
+				boolean first = (words[offset+(spot >>> 6)] & bit) != 0;
+				boolean second = (words[offset+perPlayer+(spot >>> 6)] & bit) != 0;
+				if(first && second){
+					throw new IllegalArgumentException("Both players have a piece in row " + h + " of column " + c);
+				}
+				if(!first && !second){
+					//the rest of the column has to be empty
+					for(int above = h+1; above < numRows; above++){
+						int aboveSpot = c*numRows+above;
+						long aboveBit = 1L << aboveSpot;
+						if(((words[offset+(aboveSpot >>> 6)] | words[offset+perPlayer+(aboveSpot >>> 6)]) & aboveBit) != 0){
+							throw new IllegalArgumentException("Floating piece in row " + above + " of column " + c);
+						}
+					}
+					break;
+				}
+				addMove(c, first ? 1 : 2);
+			}
+		}
+	}
+	
+	//Makes a new board from the longs written by encode
+	public static GameBoard decode(int rows, int columns, int argConnectNumber, long[] words, int offset){
+		GameBoard b = new GameBoard(rows, columns, argConnectNumber);
+		b.setEncoded(words, offset);
+		return b;
 	}
 	
 	//Method to set the board for testing purposes
@@ -64,11 +273,27 @@ public class GameBoard {
 		if(!allowsMove(column)){
 			return false;
 		}
+		if(bits != null){
+			int row = bits.addMove(column, checker);
+			hash ^= pieceKey(row, column, checker);
+			mirrorHash ^= pieceKey(row, numColumns-1-column, checker);
+			moveHistory[moveCount++] = row*numColumns+column;
+			if(threats != null){
+				threats.add(row*numColumns+column, checker);
+			}
+			return true;
+		}
 		//accounting for the way rows are in a 2d array
 		for(int i = numRows-1; i >= 0;i--){
 			if(board[i][column].isEmpty()){
 				//changing the piece to the player's piece
 				board[i][column].setColor(checker);
+				hash ^= pieceKey(i, column, checker);
+				mirrorHash ^= pieceKey(i, numColumns-1-column, checker);
+				moveHistory[moveCount++] = i*numColumns+column;
+				if(threats != null){
+					threats.add(i*numColumns+column, checker);
+				}
 				break;
 			}
 		}
@@ -79,6 +304,9 @@ public class GameBoard {
 		//out of range
 		if(column < 0 || column >= numColumns)
 			return false;
+		if(bits != null){
+			return bits.allowsMove(column);
+		}
 		//if the top row is occupied then the column is full
 		if(!board[0][column].isEmpty()){
 			return false;
@@ -88,16 +316,51 @@ public class GameBoard {
 	
 	//Method important for AI
 	public void delMove(int column){
+		if(bits != null){
+			int height = bits.getHeight(column);
+			if(height > 0){
+				int row = numRows-height;
+				int color = bits.getColor(row, column);
+				hash ^= pieceKey(row, column, color);
+				mirrorHash ^= pieceKey(row, numColumns-1-column, color);
+				if(threats != null){
+					threats.remove(row*numColumns+column, color);
+				}
+				bits.delMove(column);
+				removeFromHistory(row*numColumns+column);
+			}
+			return;
+		}
 		for(int r = 0; r < numRows; r++){
 			if(!board[r][column].isEmpty()){
+				hash ^= pieceKey(r, column, board[r][column].getColor());
+				mirrorHash ^= pieceKey(r, numColumns-1-column, board[r][column].getColor());
+				if(threats != null){
+					threats.remove(r*numColumns+column, board[r][column].getColor());
+				}
 				//make it an empty piece
 				board[r][column].setColor(0);
+				removeFromHistory(r*numColumns+column);
 				break;
 			}
 		}
 	}
 	
+	//The AI always deletes the last move so this is normally just taking off the top
+	private void removeFromHistory(int spot){
+		for(int i = moveCount-1; i >= 0; i--){
+			if(moveHistory[i] == spot){
+				System.arraycopy(moveHistory, i+1, moveHistory, i, moveCount-1-i);
+				moveCount--;
+				return;
+			}
+		}
+	}
+	
 	public boolean isFull(){
+		if(bits != null){
+			return bits.isFull();
+		}
 		//check to see if the top row is full
 		for(int c = 0; c < numColumns; c++){
 			//there is space in the row so the board isn't full
@@ -109,6 +372,9 @@ public class GameBoard {
 	}
 	
 	public boolean isColumnFull(int column){
+		if(bits != null){
+			return bits.isColumnFull(column);
+		}
 		//if the top piece of that column is not empty then it is full
 		if(!board[0][column].isEmpty()){
 			return true;
@@ -118,6 +384,9 @@ public class GameBoard {
 	
 	
 	public boolean winsFor(int checker){
+		if(bits != null){
+			return bits.winsFor(checker);
+		}
 		if(checkHorizontal(checker))
 			return true;
 		if(checkVertical(checker))
@@ -214,6 +483,56 @@ public class GameBoard {
 		return false;
 	}
 	
+	/*
+	 * Checks if the piece from the last addMove made a line. Only the lines through
+	 * that piece are looked at, so this is a lot faster than winsFor on big boards.
+	 * It is all that is needed when the game stops as soon as someone wins
+	 * */
+	public boolean lastMoveWins(){
+		if(moveCount == 0){
+			return false;
+		}
+		int spot = moveHistory[moveCount-1];
+		int column = spot%numColumns;
+		if(bits != null){
+			return bits.winsThrough(column);
+		}
+		int row = spot/numColumns;
+		int checker = getColor(row, column);
+		//horizontal, vertical and both diagonals, counting the piece itself
+		if(1+countLine(row, column, 0, 1, checker)+countLine(row, column, 0, -1, checker) >= connectNumber)
+			return true;
+		if(1+countLine(row, column, 1, 0, checker)+countLine(row, column, -1, 0, checker) >= connectNumber)
+			return true;
+		if(1+countLine(row, column, 1, 1, checker)+countLine(row, column, -1, -1, checker) >= connectNumber)
+			return true;
+		if(1+countLine(row, column, 1, -1, checker)+countLine(row, column, -1, 1, checker) >= connectNumber)
+			return true;
+		return false;
+	}
+	
+	//Counts the pieces of the checker in a row starting next to the spot and going one way
+	private int countLine(int row, int column, int rowStep, int columnStep, int checker){
+		int count = 0;
+		int r = row+rowStep;
+		int c = column+columnStep;
+		while(count < connectNumber-1 && r >= 0 && r < numRows && c >= 0 && c < numColumns
+				&& getColor(r, c) == checker){
+			count++;
+			r += rowStep;
+			c += columnStep;
+		}
+		return count;
+	}
+	
+	//Returns the column of the last piece that was added, -1 if the board is empty
+	public int getLastMoveColumn(){
+		if(moveCount == 0){
+			return -1;
+		}
+		return moveHistory[moveCount-1]%numColumns;
+	}
+	
 	public int getNumRows(){		
 		return numRows;
 	}
@@ -222,4 +541,94 @@ public class GameBoard {
 		return numColumns;
 	}
 	
+	public int getConnectNumber(){
+		return connectNumber;
+	}
+	
+	//Number of pieces on the board
+	public int getMoveCount(){
+		return moveCount;
+	}
+	
+	public long getHash(){
+		return hash;
+	}
+	
+	//The hash the board would have if it was flipped left to right
+	public long getMirrorHash(){
+		return mirrorHash;
+	}
+	
+	/*
+	 * The same for a board and its mirror image, the smaller of the two hashes.
+	 * Anything stored by column under this key has to be flipped when
+	 * isCanonicalMirrored is true
+	 * */
+	public long getCanonicalHash(){
+		return Math.min(hash, mirrorHash);
+	}
+	
+	//True if the canonical hash is the one of the flipped board
+	public boolean isCanonicalMirrored(){
+		return mirrorHash < hash;
+	}
+	
+	/*
+	 * Checks if the board looks the same flipped left to right, then a column and
+	 * its mirror column are just as good. The hashes rule out almost every board
+	 * so the pieces are only compared when they match
+	 * */
+	public boolean isMirrorSymmetric(){
+		if(hash != mirrorHash){
+			return false;
+		}
+		for(int r = 0; r < numRows; r++){
+			for(int c = 0; c < numColumns/2; c++){
+				if(getColor(r, c) != getColor(r, numColumns-1-c)){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * Turns the counting of open windows on or off. When it is turned on the
+	 * pieces already on the board are counted, after that every addMove and
+	 * delMove keeps the counts up to date
+	 * */
+	public void setThreatCounting(boolean counting){
+		if(!counting){
+			threats = null;
+			return;
+		}
+		if(threats != null){
+			return;
+		}
+		threats = new ThreatCounter(numRows, numColumns, connectNumber);
+		threats.countAll(this);
+	}
+	
+	//The open windows of each player, null if threat counting is off
+	public ThreatCounter getThreatCounter(){
+		return threats;
+	}
+	
+	/*
+	 * The random number for a piece of the checker in that spot. Instead of keeping
+	 * a table of random numbers they are made from the spot by mixing its bits, so
+	 * every board of the same size gets the same numbers without storing anything
+	 * */
+	private long pieceKey(int row, int column, int checker){
+		return mix(((long)(row*numColumns+column) << 2) | checker);
+	}
+	
+	//The splitmix64 finalizer, turns a number into one that looks random, different numbers stay different
+	static long mix(long z){
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
 }
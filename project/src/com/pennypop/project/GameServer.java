@@ -0,0 +1,311 @@
+package com.pennypop.project;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class hosts lots of games against the AI at once without any screen.
+ * Each game only keeps its GameBoard, the AI that answers the moves belongs
+ * to the worker thread that runs it, so a game costs a few hundred bytes
+ * and a server can hold tens of thousands of them.
+ *
+ * Moves are answered on a fixed number of worker threads. The moves of one
+ * game are always run one at a time in the order they were sent, but
+ * different games are spread over all the workers. Only so many moves can be
+ * waiting at once, after that play throws a RejectedExecutionException
+ * until the workers catch up. GameServerLoadTest plays many games at once
+ * against a server and prints how many moves it answers and how long they
+ * take.
+ *
+ * The AI is given like in SelfPlayTournament as SEARCH:PLY:TIEBREAK with an
+ * optional time limit in milliseconds, for example ALPHABETA:6:RANDOM:50.
+ * Unlike SelfPlayTournament the evaluator isn't part of the spec, every AI
+ * scores the boards at the end of its ply with the ThreatEvaluator like the
+ * one in ConnectFourScreen does. It searches on its own copy of the board so
+ * the games' boards don't keep any of its counts. With the SOLVER the two AIs
+ * of a worker share one Solver, so each worker only has one solver table.
+ *
+ * @author Erik Gallegos
+ * */
+public class GameServer {
+
+	private final ThreadPoolExecutor workers;
+	private final ConcurrentHashMap<Integer, Session> sessions;
+	private final AtomicInteger nextId;
+	//moves sent but not answered yet, over all the games
+	private final AtomicInteger waiting;
+	private final int maxWaiting;
+	//the AI from the spec, see createPlayer
+	private final String searchType;
+	private final int ply;
+	private final String tieBreak;
+	private final long timeLimit;
+	//one AI for each checker on each worker, made the first time the worker needs it
+	private final ThreadLocal<AIPlayer[]> players;
+
+	public GameServer(int threads, int argMaxWaiting, String argPlayerSpec){
+		maxWaiting = argMaxWaiting;
+		String[] parts = argPlayerSpec.split(":");
+		if(parts.length < 3){
+			throw new IllegalArgumentException("Players look like SEARCH:PLY:TIEBREAK: " + argPlayerSpec);
+		}
+		searchType = parts[0];
+		ply = Integer.parseInt(parts[1]);
+		tieBreak = parts[2];
+		timeLimit = parts.length > 3 ? Long.parseLong(parts[3]) : 0;
+		//a bad spec is found before any game is started, without making a player that could take a lot of memory
+		AIPlayer.checkSettings(tieBreak, searchType);
+		sessions = new ConcurrentHashMap<Integer, Session>();
+		nextId = new AtomicInteger();
+		waiting = new AtomicInteger();
+		players = new ThreadLocal<AIPlayer[]>(){
+			protected AIPlayer[] initialValue(){
+				AIPlayer[] workerPlayers = {null, createPlayer(1), createPlayer(2)};
+				//the two players of a worker never search at the same time so one solver table is enough
+				Solver solver = new Solver(AIPlayer.SOLVER_TABLE_BYTES);
+				workerPlayers[1].setSolver(solver);
+				workerPlayers[2].setSolver(solver);
+				return workerPlayers;
+			}
+		};
+		//a game is in the queue at most once, so the queue can't grow past the number of games
+		workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory(){
+			private final AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable r){
+				//daemon threads so a forgotten server doesn't keep the program from closing
+				Thread thread = new Thread(r, "Game server " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	//Makes an AIPlayer from the SEARCH:PLY:TIEBREAK[:TIMELIMIT] given to the constructor
+	private AIPlayer createPlayer(int checker){
+		AIPlayer player = new AIPlayer(checker, tieBreak, ply, searchType);
+		//the workers are already running side by side
+		player.setThreadCount(1);
+		player.setTimeLimit(timeLimit);
+		player.setEvaluator(new ThreatEvaluator());
+		return player;
+	}
+
+	/*
+	 * Starts a game and returns its id. If the AI goes first the game waits for
+	 * a play with column -1 to ask for the AI's first move
+	 * */
+	public int createGame(int rows, int columns, int connectNumber, boolean aiFirst){
+		int id = nextId.incrementAndGet();
+		sessions.put(Integer.valueOf(id), new Session(new GameBoard(rows, columns, connectNumber), aiFirst ? 1 : 2));
+		return id;
+	}
+
+	/*
+	 * Sends the player's move in the column and returns the answer, which has the
+	 * AI's move unless the player's move ended the game. -1 skips the player's
+	 * move, that is how the AI is asked for the first move when it goes first.
+	 * The Future fails with an IllegalArgumentException for a move that isn't
+	 * legal and an IllegalStateException if the game is over
+	 * */
+	public Future<Reply> play(int gameId, int column){
+		Session session = getSession(gameId);
+		if(waiting.incrementAndGet() > maxWaiting){
+			waiting.decrementAndGet();
+			throw new RejectedExecutionException("Too many moves waiting: " + maxWaiting);
+		}
+		FutureTask<Reply> task = new FutureTask<Reply>(new MoveTask(session, column, System.nanoTime()));
+		session.submit(task);
+		return task;
+	}
+
+	//Forgets the game, moves that were already sent are still answered
+	public void endGame(int gameId){
+		sessions.remove(Integer.valueOf(gameId));
+	}
+
+	private Session getSession(int gameId){
+		Session session = sessions.get(Integer.valueOf(gameId));
+		if(session == null){
+			throw new IllegalArgumentException("No game with id " + gameId);
+		}
+		return session;
+	}
+
+	public int getGameCount(){
+		return sessions.size();
+	}
+
+	//Moves that were sent and haven't been answered yet
+	public int getWaitingCount(){
+		return waiting.get();
+	}
+
+	//Stops the workers, moves that are still waiting are never answered
+	public void shutdown(){
+		workers.shutdownNow();
+	}
+
+	/*
+	 * One game. The moves sent to it wait in its own queue and the game is put in
+	 * the workers' queue whenever it has moves and isn't already there, so only
+	 * one worker at a time runs its moves and they run in order
+	 * */
+	private class Session implements Runnable {
+		private final GameBoard board;
+		private final int aiChecker;
+		private final Queue<FutureTask<Reply>> tasks;
+		//true while the game is in the workers' queue or running
+		private boolean scheduled;
+		private String status;
+
+		Session(GameBoard argBoard, int argAiChecker){
+			board = argBoard;
+			aiChecker = argAiChecker;
+			tasks = new ArrayDeque<FutureTask<Reply>>(2);
+			status = "PLAYING";
+		}
+
+		void submit(FutureTask<Reply> task){
+			synchronized(this){
+				tasks.add(task);
+				if(scheduled){
+					return;
+				}
+				scheduled = true;
+			}
+			workers.execute(this);
+		}
+
+		//Runs one move and goes to the back of the queue if there are more so other games get a turn
+		public void run(){
+			FutureTask<Reply> task;
+			synchronized(this){
+				task = tasks.poll();
+			}
+			try{
+				task.run();
+			}
+			finally{
+				waiting.decrementAndGet();
+			}
+			synchronized(this){
+				if(tasks.isEmpty()){
+					scheduled = false;
+					return;
+				}
+			}
+			workers.execute(this);
+		}
+	}
+
+	//The player's move and the AI's answer, run by a worker
+	private class MoveTask implements Callable<Reply> {
+		private final Session session;
+		private final int column;
+		private final long sent;
+
+		MoveTask(Session argSession, int argColumn, long argSent){
+			session = argSession;
+			column = argColumn;
+			sent = argSent;
+		}
+
+		public Reply call(){
+			long start = System.nanoTime();
+			GameBoard board = session.board;
+			if(!session.status.equals("PLAYING")){
+				throw new IllegalStateException("The game is over: " + session.status);
+			}
+			int aiTurn = board.getMoveCount()%2+1 == session.aiChecker ? 1 : 0;
+			if(column < 0){
+				if(aiTurn == 0){
+					throw new IllegalArgumentException("It isn't the AI's turn");
+				}
+			}
+			else{
+				if(aiTurn == 1){
+					throw new IllegalArgumentException("It is the AI's turn, send -1");
+				}
+				if(!board.addMove(column, 3-session.aiChecker)){
+					throw new IllegalArgumentException("Column " + column + " can't take another piece");
+				}
+				session.status = statusAfterMove("PLAYER_WON");
+			}
+			int aiColumn = -1;
+			if(session.status.equals("PLAYING")){
+				AIPlayer ai = players.get()[session.aiChecker];
+				aiColumn = ai.nextMove(board);
+				board.addMove(aiColumn, session.aiChecker);
+				session.status = statusAfterMove("AI_WON");
+			}
+			long end = System.nanoTime();
+			return new Reply(aiColumn, session.status, board.getMoveCount(), start-sent, end-start);
+		}
+
+		private String statusAfterMove(String winner){
+			GameBoard board = session.board;
+			if(board.lastMoveWins()){
+				return winner;
+			}
+			if(board.isFull()){
+				return "TIE";
+			}
+			return "PLAYING";
+		}
+	}
+
+	/**
+	 * The answer to a move. The status is "PLAYING", "PLAYER_WON", "AI_WON" or "TIE".
+	 * */
+	public static class Reply {
+		private final int aiColumn;
+		private final String status;
+		private final int moveCount;
+		private final long waitNanos;
+		private final long runNanos;
+
+		Reply(int argAiColumn, String argStatus, int argMoveCount, long argWaitNanos, long argRunNanos){
+			aiColumn = argAiColumn;
+			status = argStatus;
+			moveCount = argMoveCount;
+			waitNanos = argWaitNanos;
+			runNanos = argRunNanos;
+		}
+
+		//The column the AI played, -1 if the player's move ended the game
+		public int getAiColumn(){
+			return aiColumn;
+		}
+
+		public String getStatus(){
+			return status;
+		}
+
+		//Pieces on the board after the move
+		public int getMoveCount(){
+			return moveCount;
+		}
+
+		//Time the move waited for a worker
+		public long getWaitNanos(){
+			return waitNanos;
+		}
+
+		//Time the worker took to play the move and find the AI's answer
+		public long getRunNanos(){
+			return runNanos;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.pennypop.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * This class plays lots of games at once against a GameServer and prints how
+ * many moves it answered per second and how long the answers took. The
+ * games are played by a client that moves in a random column. Every round
+ * the client sends one move to each game and then waits for all the
+ * answers, so there are always as many moves in flight as there are games.
+ * A game that ends is replaced by a new one. Arguments are key=value:
+ *
+ *   games=10000 threads=4 seconds=10 seed=1 waiting=100000
+ *   rows=6 columns=7 connect=4 player=ALPHABETA:4:RANDOM
+ *
+ * waiting is the most moves the server lets wait for a worker, the moves it
+ * turns away are counted and sent again in the next round.
+ *
+ * @author Erik Gallegos
+ * */
+public class GameServerLoadTest {
+
+	private int games = 10000;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int seconds = 10;
+	private long seed = 1;
+	private int maxWaiting = 100000;
+	private int numRows = 6;
+	private int numColumns = 7;
+	private int connectNumber = 4;
+	private String player = "ALPHABETA:4:RANDOM";
+
+	public static void main(String[] args){
+		GameServerLoadTest test = new GameServerLoadTest();
+		for(int i = 0; i < args.length; i++){
+			test.setOption(args[i]);
+		}
+		test.run();
+	}
+
+	public void setOption(String option){
+		int split = option.indexOf('=');
+		if(split < 0){
+			throw new IllegalArgumentException("Options look like key=value: " + option);
+		}
+		String key = option.substring(0, split);
+		String value = option.substring(split+1);
+		if(key.equals("games")){
+			games = Integer.parseInt(value);
+		}
+		else if(key.equals("threads")){
+			threads = Integer.parseInt(value);
+		}
+		else if(key.equals("seconds")){
+			seconds = Integer.parseInt(value);
+		}
+		else if(key.equals("seed")){
+			seed = Long.parseLong(value);
+		}
+		else if(key.equals("waiting")){
+			maxWaiting = Integer.parseInt(value);
+		}
+		else if(key.equals("rows")){
+			numRows = Integer.parseInt(value);
+		}
+		else if(key.equals("columns")){
+			numColumns = Integer.parseInt(value);
+		}
+		else if(key.equals("connect")){
+			connectNumber = Integer.parseInt(value);
+		}
+		else if(key.equals("player")){
+			player = value;
+		}
+		else{
+			throw new IllegalArgumentException("Unknown option: " + key);
+		}
+	}
+
+	public void run(){
+		System.out.println("Playing " + games + " games at once against " + player + " on a " + numRows + "x"
+			+ numColumns + " board, connect " + connectNumber + ", " + threads + " threads, " + seconds + " s");
+		GameServer server = new GameServer(threads, maxWaiting, player);
+		Random random = new Random(seed);
+		int[] ids = new int[games];
+		//the client's copy of each game, to pick legal moves
+		GameBoard[] boards = new GameBoard[games];
+		for(int g = 0; g < games; g++){
+			ids[g] = server.createGame(numRows, numColumns, connectNumber, false);
+			boards[g] = new GameBoard(numRows, numColumns, connectNumber);
+		}
+		List<Future<GameServer.Reply>> replies = new ArrayList<Future<GameServer.Reply>>(games);
+		int[] columns = new int[games];
+		long[] waitTimes = new long[games];
+		long[] totalTimes = new long[games];
+		List<long[]> allWaits = new ArrayList<long[]>();
+		List<long[]> allTotals = new ArrayList<long[]>();
+		long moves = 0;
+		long rejected = 0;
+		int finished = 0;
+		long start = System.nanoTime();
+		long end = start+seconds*1000000000L;
+		try{
+			while(System.nanoTime() < end){
+				replies.clear();
+				for(int g = 0; g < games; g++){
+					int column;
+					do{
+						column = random.nextInt(numColumns);
+					}while(!boards[g].allowsMove(column));
+					columns[g] = column;
+					try{
+						replies.add(server.play(ids[g], column));
+					}
+					catch(RejectedExecutionException e){
+						replies.add(null);
+						rejected++;
+					}
+				}
+				int answered = 0;
+				for(int g = 0; g < games; g++){
+					Future<GameServer.Reply> future = replies.get(g);
+					if(future == null){
+						continue;
+					}
+					GameServer.Reply reply = future.get();
+					waitTimes[answered] = reply.getWaitNanos();
+					totalTimes[answered] = reply.getWaitNanos()+reply.getRunNanos();
+					answered++;
+					boards[g].addMove(columns[g], 1);
+					if(reply.getAiColumn() >= 0){
+						boards[g].addMove(reply.getAiColumn(), 2);
+					}
+					if(!reply.getStatus().equals("PLAYING")){
+						server.endGame(ids[g]);
+						ids[g] = server.createGame(numRows, numColumns, connectNumber, false);
+						boards[g] = new GameBoard(numRows, numColumns, connectNumber);
+						finished++;
+					}
+				}
+				moves += answered;
+				allWaits.add(Arrays.copyOf(waitTimes, answered));
+				allTotals.add(Arrays.copyOf(totalTimes, answered));
+			}
+			printMemoryPerGame(server, ids, boards);
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Load test was interrupted", e);
+		}
+		catch(ExecutionException e){
+			throw new RuntimeException("A move failed", e.getCause());
+		}
+		finally{
+			server.shutdown();
+		}
+		double elapsed = (System.nanoTime()-start)/1e9;
+		System.out.println(String.format("%d moves answered in %.1f s, %.0f moves per second, %d games finished, %d moves turned away",
+			moves, elapsed, moves/elapsed, finished, rejected));
+		printLatency("wait for a worker", allWaits);
+		printLatency("sent to answered", allTotals);
+	}
+
+	/*
+	 * Ends every game and prints how much memory that freed for each one, so it is
+	 * measured with the games part way through like they are on a real server
+	 * */
+	private void printMemoryPerGame(GameServer server, int[] ids, GameBoard[] boards){
+		long pieces = 0;
+		for(int g = 0; g < games; g++){
+			pieces += boards[g].getMoveCount();
+		}
+		long withGames = usedMemory();
+		for(int g = 0; g < games; g++){
+			server.endGame(ids[g]);
+		}
+		long withoutGames = usedMemory();
+		System.out.println(String.format("%.0f bytes per game on the server with %.1f pieces on the board on average",
+			(withGames-withoutGames)/(double)games, pieces/(double)games));
+	}
+
+	//Prints the percentiles of the times in ms
+	private static void printLatency(String name, List<long[]> times){
+		int count = 0;
+		for(int i = 0; i < times.size(); i++){
+			count += times.get(i).length;
+		}
+		if(count == 0){
+			return;
+		}
+		long[] all = new long[count];
+		int next = 0;
+		for(int i = 0; i < times.size(); i++){
+			System.arraycopy(times.get(i), 0, all, next, times.get(i).length);
+			next += times.get(i).length;
+		}
+		Arrays.sort(all);
+		System.out.println(String.format("%s in ms: p50 %.3f p90 %.3f p99 %.3f max %.3f",
+			name, percentile(all, 50)/1e6, percentile(all, 90)/1e6, percentile(all, 99)/1e6, all[all.length-1]/1e6));
+	}
+
+	private static long percentile(long[] sorted, int percent){
+		int index = (int)Math.ceil(percent/100.0*sorted.length)-1;
+		return sorted[Math.max(0, Math.min(sorted.length-1, index))];
+	}
+
+	private static long usedMemory(){
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory()-runtime.freeMemory();
+	}
+}
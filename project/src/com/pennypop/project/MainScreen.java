@@ -51,17 +51,24 @@ public class MainScreen implements Screen {
 	private static final int BUTTONPADDING = 10;
 	
 	private Game game;
+	//told which part of the frame is running
+	private final FrameProfiler profiler;
+	//shared with the other screens, the sprite batch, font, atlas and sound are only released here
+	private final GameAssets assets;
+	//set by the game button, the screen is changed at the end of render
+	private boolean startGame = false;
 	
 	public MainScreen(Game game) {
 		this.game = game;
+		profiler = FrameProfiler.of(game);
+		assets = GameAssets.of(game);
 		
-		spriteBatch = new SpriteBatch();
+		spriteBatch = assets.getSpriteBatch();
 		stage = new Stage(Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), false, spriteBatch);
-		font = new BitmapFont(Gdx.files.internal("font.fnt"),false);
+		font = assets.acquire(GameAssets.FONT, BitmapFont.class);
 		//setting up button atlas and skin from the Button package
-		buttonAtlas = new TextureAtlas(Gdx.files.internal("Buttons.pack"));
-		buttonSkin = new Skin(buttonAtlas);
-		buttonSkin.addRegions(buttonAtlas);
+		buttonAtlas = assets.acquire(GameAssets.BUTTONS, TextureAtlas.class);
+		buttonSkin = assets.getButtonSkin();
 		//setting up each button 
 		sfxButton = new Button(buttonSkin.getDrawable("sfxButton"));
 		apiButton = new Button(buttonSkin.getDrawable("apiButton"));
@@ -76,7 +83,7 @@ public class MainScreen implements Screen {
 		stage.addActor(sfxButton);
 		stage.addActor(apiButton);
 		stage.addActor(gameButton);
-		sound = Gdx.audio.newSound(Gdx.files.internal("button_click.wav"));
+		sound = assets.acquire(GameAssets.CLICK_SOUND, Sound.class);
 		//calling method to add click listener because it's a lot of lines of code
 		weatherListenerSetup();
 		sfxButton.addListener(new ClickListener(){
@@ -86,28 +93,32 @@ public class MainScreen implements Screen {
 		});
 		gameButton.addListener(new ClickListener(){
 			public void clicked(InputEvent event, float x, float y){
-				loadGame();
+				//the stage is still handling the click so it can't be disposed yet
+				startGame = true;
 			}	
 		});
 	}
 	
 	public void loadGame(){
 		game.setScreen(new ConnectFourScreen(game));
+		//nothing else has this screen so it has to be disposed here
+		dispose();
 	}
 
 	@Override
 	public void dispose(){
-		spriteBatch.dispose();
+		//the stage doesn't own the shared sprite batch so it leaves it alone
 		stage.dispose();
-		font.dispose();
-		buttonAtlas.dispose();
-		buttonSkin.dispose();
-		sound.dispose();
+		assets.release(GameAssets.FONT);
+		assets.release(GameAssets.BUTTONS);
+		assets.release(GameAssets.CLICK_SOUND);
 	}
 
 	@Override
 	public void render(float delta) {
+		profiler.startPhase(FrameProfiler.UPDATE);
 		stage.act(delta);
+		profiler.startPhase(FrameProfiler.DRAW);
 		stage.draw();
 		
 		spriteBatch.begin();
@@ -117,6 +128,9 @@ public class MainScreen implements Screen {
 			displayWeatherInfo();
 		}
 		spriteBatch.end();
+		if(startGame){
+			loadGame();
+		}
 	}
 
 	@Override
@@ -0,0 +1,179 @@
+package com.pennypop.project;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class holds the scores of the columns for the first few moves of the
+ * game, worked out ahead of time by OpeningBookBuilder with a much deeper
+ * search than the AI can do while the game is being played. The start of the
+ * game is where the search is the slowest, so with a book the AI can answer
+ * those moves right away and only has to search once the game leaves it.
+ *
+ * A book is for one size of board and is kept in a binary file that is memory
+ * mapped when it is loaded, so it doesn't have to be read in and a lookup is
+ * a binary search over the file:
+ *
+ *   int magic, int version, int rows, int columns, int connect, int ply, int count
+ *   count entries sorted by key, each a long key and one byte score per column
+ *
+ * The key is the canonical Zobrist hash of the board (GameBoard.getCanonicalHash),
+ * which is the same no matter the order the pieces were added in and the same
+ * for a board and its mirror image, so only one of them is stored and the
+ * scores are flipped when the other one is looked up. Player 1 always moves
+ * first so the number of pieces tells whose move it is. Like the scores of
+ * the alpha-beta search only the best columns have their exact score, the
+ * others are only known to be lower.
+ *
+ * A lookup only reads the mapping at fixed places, so one loaded book can be
+ * shared by any number of AIPlayers on any threads. Load it once per file
+ * instead of once per player, a mapping isn't released until it is garbage
+ * collected.
+ *
+ * @author Erik Gallegos
+ * */
+public class OpeningBook {
+
+	private static final int MAGIC = 0x43344F42;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 7*4;
+
+	private final MappedByteBuffer buffer;
+	private final int numRows;
+	private final int numColumns;
+	private final int connectNumber;
+	//the ply the boards were searched to
+	private final int ply;
+	private final int count;
+	private final int entrySize;
+
+	private OpeningBook(MappedByteBuffer argBuffer){
+		buffer = argBuffer;
+		numRows = buffer.getInt(8);
+		numColumns = buffer.getInt(12);
+		connectNumber = buffer.getInt(16);
+		ply = buffer.getInt(20);
+		count = buffer.getInt(24);
+		entrySize = 8+numColumns;
+	}
+
+	//The name of the book file for a size of board, like book-6x7-4.bin
+	public static String fileName(int rows, int columns, int connectNumber){
+		return "book-" + rows + "x" + columns + "-" + connectNumber + ".bin";
+	}
+
+	/*
+	 * Maps the book file into memory. Throws an IOException if the file can't be
+	 * read or isn't a book
+	 * */
+	public static OpeningBook load(File file) throws IOException{
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try{
+			FileChannel channel = input.getChannel();
+			if(channel.size() < HEADER_SIZE){
+				throw new IOException("Not an opening book: " + file);
+			}
+			//the mapping stays valid after the file is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION){
+				throw new IOException("Not an opening book: " + file);
+			}
+			OpeningBook book = new OpeningBook(buffer);
+			if(HEADER_SIZE+(long)book.count*book.entrySize > channel.size()){
+				throw new IOException("Opening book is cut short: " + file);
+			}
+			return book;
+		}
+		finally{
+			input.close();
+		}
+	}
+
+	/*
+	 * Writes a book file. The keys have to be sorted and scores[i] holds the
+	 * score of each column for keys[i]
+	 * */
+	public static void save(File file, int rows, int columns, int connectNumber, int ply,
+			long[] keys, byte[][] scores) throws IOException{
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try{
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(rows);
+			output.writeInt(columns);
+			output.writeInt(connectNumber);
+			output.writeInt(ply);
+			output.writeInt(keys.length);
+			for(int i = 0; i < keys.length; i++){
+				if(i > 0 && keys[i] <= keys[i-1]){
+					throw new IllegalArgumentException("Opening book keys have to be sorted and different");
+				}
+				output.writeLong(keys[i]);
+				output.write(scores[i], 0, columns);
+			}
+		}
+		finally{
+			output.close();
+		}
+	}
+
+	/*
+	 * Puts the scores of the columns for the checker in the array and returns true
+	 * if the board is in the book. Returns false without touching the scores if it
+	 * isn't, then the AI has to search
+	 * */
+	public boolean lookup(GameBoard b, int checker, double[] scores){
+		if(b.getNumRows() != numRows || b.getNumColumns() != numColumns
+				|| b.getConnectNumber() != connectNumber){
+			return false;
+		}
+		//the book only has the boards where it is the checker's turn
+		if(checker != b.getMoveCount()%2+1){
+			return false;
+		}
+		int index = find(b.getCanonicalHash());
+		if(index < 0){
+			return false;
+		}
+		int position = HEADER_SIZE+index*entrySize+8;
+		boolean mirrored = b.isCanonicalMirrored();
+		for(int c = 0; c < numColumns; c++){
+			scores[mirrored ? numColumns-1-c : c] = buffer.get(position+c);
+		}
+		return true;
+	}
+
+	//Binary search for the entry with the key, -1 if there isn't one
+	private int find(long key){
+		int low = 0;
+		int high = count-1;
+		while(low <= high){
+			int middle = (low+high) >>> 1;
+			long middleKey = buffer.getLong(HEADER_SIZE+middle*entrySize);
+			if(middleKey < key){
+				low = middle+1;
+			}
+			else if(middleKey > key){
+				high = middle-1;
+			}
+			else{
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	public int getSize(){
+		return count;
+	}
+
+	public int getPly(){
+		return ply;
+	}
+}
@@ -0,0 +1,210 @@
+package com.pennypop.project;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class makes the OpeningBook for a size of board. It finds every board
+ * that can come up in the first few moves of a game, searches each of them
+ * with the alpha-beta search to a much higher ply than the AI uses during a
+ * game and writes the scores to the book file. It is meant to be run once
+ * for each board size, it can take a while. Arguments are key=value:
+ *
+ *   rows=6 columns=7 connect=4   the size of the board
+ *   moves=6                      boards with up to this many pieces go in the book
+ *   ply=12                       how far ahead each board is searched
+ *   evaluator=THREAT             THREAT or NONE, see AIPlayer.setEvaluator
+ *   threads=4 table=64           threads and the MB of TranspositionTable for each
+ *   out=book-6x7-4.bin           where to write the book
+ *
+ * @author Erik Gallegos
+ * */
+public class OpeningBookBuilder {
+
+	private int numRows = 6;
+	private int numColumns = 7;
+	private int connectNumber = 4;
+	private int moves = 6;
+	private int ply = 12;
+	private String evaluator = "THREAT";
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int tableMegabytes = 64;
+	private String out;
+
+	public static void main(String[] args) throws IOException{
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		for(int i = 0; i < args.length; i++){
+			builder.setOption(args[i]);
+		}
+		builder.run();
+	}
+
+	public void setOption(String option){
+		int split = option.indexOf('=');
+		if(split < 0){
+			throw new IllegalArgumentException("Options look like key=value: " + option);
+		}
+		String key = option.substring(0, split);
+		String value = option.substring(split+1);
+		if(key.equals("rows")){
+			numRows = Integer.parseInt(value);
+		}
+		else if(key.equals("columns")){
+			numColumns = Integer.parseInt(value);
+		}
+		else if(key.equals("connect")){
+			connectNumber = Integer.parseInt(value);
+		}
+		else if(key.equals("moves")){
+			moves = Integer.parseInt(value);
+		}
+		else if(key.equals("ply")){
+			ply = Integer.parseInt(value);
+		}
+		else if(key.equals("evaluator")){
+			if(!value.equals("THREAT") && !value.equals("NONE")){
+				throw new IllegalArgumentException("Evaluators are THREAT or NONE: " + value);
+			}
+			evaluator = value;
+		}
+		else if(key.equals("threads")){
+			threads = Integer.parseInt(value);
+		}
+		else if(key.equals("table")){
+			tableMegabytes = Integer.parseInt(value);
+		}
+		else if(key.equals("out")){
+			out = value;
+		}
+		else{
+			throw new IllegalArgumentException("Unknown option: " + key);
+		}
+	}
+
+	public void run() throws IOException{
+		File file = new File(out != null ? out : OpeningBook.fileName(numRows, numColumns, connectNumber));
+		long start = System.nanoTime();
+		List<GameBoard> boards = findBoards();
+		System.out.println("Searching " + boards.size() + " boards with up to " + moves
+			+ " pieces to ply " + ply + " on " + threads + " threads");
+		//sorted by key the way the book needs them
+		Map<Long, byte[]> entries = new TreeMap<Long, byte[]>();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Map<Long, byte[]>>> results = new ArrayList<Future<Map<Long, byte[]>>>();
+		AtomicInteger done = new AtomicInteger();
+		for(int t = 0; t < threads; t++){
+			results.add(pool.submit(new SearchTask(boards, t, done)));
+		}
+		try{
+			for(int t = 0; t < threads; t++){
+				entries.putAll(results.get(t).get());
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Opening book was interrupted", e);
+		}
+		catch(ExecutionException e){
+			throw new RuntimeException("Opening book search failed", e.getCause());
+		}
+		finally{
+			pool.shutdown();
+		}
+		long[] keys = new long[entries.size()];
+		byte[][] scores = new byte[entries.size()][];
+		int next = 0;
+		for(Map.Entry<Long, byte[]> entry : entries.entrySet()){
+			keys[next] = entry.getKey().longValue();
+			scores[next] = entry.getValue();
+			next++;
+		}
+		OpeningBook.save(file, numRows, numColumns, connectNumber, ply, keys, scores);
+		System.out.println(String.format("Wrote %d boards to %s (%d bytes) in %.1f s", keys.length, file,
+			file.length(), (System.nanoTime()-start)/1e9));
+	}
+
+	/*
+	 * Every board with up to the number of moves in pieces that nobody has won,
+	 * each one only once even if it can be reached in different orders or its
+	 * mirror image is already there
+	 * */
+	private List<GameBoard> findBoards(){
+		List<GameBoard> boards = new ArrayList<GameBoard>();
+		Set<Long> seen = new HashSet<Long>();
+		GameBoard empty = new GameBoard(numRows, numColumns, connectNumber);
+		boards.add(empty);
+		seen.add(Long.valueOf(empty.getCanonicalHash()));
+		//the boards are added one number of pieces at a time so this goes through them in order
+		for(int i = 0; i < boards.size(); i++){
+			GameBoard b = boards.get(i);
+			if(b.getMoveCount() >= moves){
+				continue;
+			}
+			int checker = b.getMoveCount()%2+1;
+			for(int c = 0; c < numColumns; c++){
+				if(!b.addMove(c, checker)){
+					continue;
+				}
+				if(!b.lastMoveWins() && !b.isFull() && seen.add(Long.valueOf(b.getCanonicalHash()))){
+					boards.add(new GameBoard(b));
+				}
+				b.delMove(c);
+			}
+		}
+		return boards;
+	}
+
+	//Searches every threads-th board starting from the first one it is given
+	private class SearchTask implements Callable<Map<Long, byte[]>> {
+		private final List<GameBoard> boards;
+		private final int first;
+		private final AtomicInteger done;
+
+		SearchTask(List<GameBoard> argBoards, int argFirst, AtomicInteger argDone){
+			boards = argBoards;
+			first = argFirst;
+			done = argDone;
+		}
+
+		public Map<Long, byte[]> call(){
+			Map<Long, byte[]> entries = new TreeMap<Long, byte[]>();
+			AlphaBetaSearch search = new AlphaBetaSearch();
+			if(tableMegabytes > 0){
+				search.setTranspositionTable(new TranspositionTable(tableMegabytes*1024L*1024L));
+			}
+			if(evaluator.equals("THREAT")){
+				search.setEvaluator(new ThreatEvaluator());
+			}
+			double[] scores = new double[numColumns];
+			for(int i = first; i < boards.size(); i += threads){
+				//a copy so the threads never share a board
+				GameBoard b = new GameBoard(boards.get(i));
+				search.scoresFor(b, b.getMoveCount()%2+1, ply, scores);
+				//the book has the scores of the canonical board, flipped if that is the mirror image
+				boolean mirrored = b.isCanonicalMirrored();
+				byte[] entry = new byte[numColumns];
+				for(int c = 0; c < numColumns; c++){
+					entry[mirrored ? numColumns-1-c : c] = (byte)scores[c];
+				}
+				entries.put(Long.valueOf(b.getCanonicalHash()), entry);
+				int count = done.incrementAndGet();
+				if(count%1000 == 0){
+					System.out.println(count + " of " + boards.size() + " boards searched");
+				}
+			}
+			return entries;
+		}
+	}
+}
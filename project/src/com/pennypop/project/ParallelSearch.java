@@ -0,0 +1,238 @@
+package com.pennypop.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class splits the alpha-beta search over several threads. Every column
+ * at the top of the search is scored on its own thread with its own copy of
+ * the board, and with a split depth of 2 every reply of the opponent to those
+ * columns gets its own thread too, which gives more work to go around on
+ * machines with a lot of cores.
+ *
+ * Each column is given its exact score, so the best columns are the same as
+ * with the search on one thread and with the same seed the AIPlayer picks
+ * the same move. A TranspositionTable can be shared by all the threads, the
+ * entries are checked against their key so a slot being written by two
+ * threads at once just looks like a miss, but the hit and miss counts are
+ * not exact.
+ *
+ * If the board is the same flipped left to right only the left half of the
+ * columns is given to the threads and the right half copies their scores.
+ *
+ * @author Erik Gallegos
+ * */
+public class ParallelSearch {
+
+	private int threadCount;
+	//1 to split the columns of the AI, 2 to also split the replies of the opponent
+	private int splitDepth;
+	private TranspositionTable table;
+	private BoardEvaluator evaluator;
+	//made the first time it is needed
+	private ExecutorService executor;
+	//boards looked at by all the threads
+	private final AtomicLong nodes;
+	private final AtomicLong cutoffs;
+	//lookups in the table by this search's threads, not anything else sharing the table
+	private final AtomicLong tableProbes;
+	private final AtomicLong tableHits;
+
+	public ParallelSearch(int argThreadCount){
+		threadCount = Math.max(1, argThreadCount);
+		splitDepth = 1;
+		nodes = new AtomicLong();
+		cutoffs = new AtomicLong();
+		tableProbes = new AtomicLong();
+		tableHits = new AtomicLong();
+	}
+
+	public void setThreadCount(int argThreadCount){
+		if(argThreadCount != threadCount){
+			shutdown();
+			threadCount = Math.max(1, argThreadCount);
+		}
+	}
+
+	public int getThreadCount(){
+		return threadCount;
+	}
+
+	public void setSplitDepth(int argSplitDepth){
+		splitDepth = argSplitDepth;
+	}
+
+	public void setTranspositionTable(TranspositionTable argTable){
+		table = argTable;
+	}
+
+	public void setEvaluator(BoardEvaluator argEvaluator){
+		evaluator = argEvaluator;
+	}
+
+	public long getNodes(){
+		return nodes.get();
+	}
+
+	public long getCutoffs(){
+		return cutoffs.get();
+	}
+
+	public long getTableProbes(){
+		return tableProbes.get();
+	}
+
+	public long getTableHits(){
+		return tableHits.get();
+	}
+
+	public TranspositionTable getTranspositionTable(){
+		return table;
+	}
+
+	public double[] scoresFor(GameBoard b, int checker, int ply){
+		int numColumns = b.getNumColumns();
+		int opponent = 3-checker;
+		//nothing to split up so just use the normal search
+		if(ply == 0 || b.winsFor(checker) || b.winsFor(opponent)){
+			AlphaBetaSearch search = new AlphaBetaSearch();
+			search.setEvaluator(evaluator);
+			double[] scores = search.scoresFor(b, checker, ply);
+			nodes.addAndGet(search.getNodes());
+			cutoffs.addAndGet(search.getCutoffs());
+			return scores;
+		}
+		if(table != null){
+			table.newSearch();
+		}
+		ExecutorService pool = getExecutor();
+		double[] scores = new double[numColumns];
+		//the tasks for each column, null if the column already has its score
+		List<List<Future<Integer>>> tasks = new ArrayList<List<Future<Integer>>>();
+		//true if the tasks for the column are the replies of the opponent
+		boolean[] isReplies = new boolean[numColumns];
+		boolean symmetric = b.isMirrorSymmetric();
+		for(int c = 0; c < numColumns; c++){
+			List<Future<Integer>> columnTasks = null;
+			if(symmetric && c > numColumns-1-c){
+				//scored the same as its mirror column below
+			}
+			else if(b.isColumnFull(c)){
+				scores[c] = -1.0;
+			}
+			else if(splitDepth < 2 || ply < 2){
+				columnTasks = new ArrayList<Future<Integer>>();
+				columnTasks.add(pool.submit(new ColumnTask(b, c, checker, ply)));
+			}
+			else{
+				b.addMove(c, checker);
+				if(b.lastMoveWins()){
+					scores[c] = 100.0;
+				}
+				else{
+					//score every reply of the opponent on its own
+					columnTasks = new ArrayList<Future<Integer>>();
+					isReplies[c] = true;
+					for(int reply = 0; reply < numColumns; reply++){
+						columnTasks.add(pool.submit(new ColumnTask(b, reply, opponent, ply-1)));
+					}
+				}
+				b.delMove(c);
+			}
+			tasks.add(columnTasks);
+		}
+		for(int c = 0; c < numColumns; c++){
+			List<Future<Integer>> columnTasks = tasks.get(c);
+			if(columnTasks == null){
+				continue;
+			}
+			if(!isReplies[c]){
+				scores[c] = getResult(columnTasks.get(0));
+			}
+			else{
+				//same as the normal search, 100 minus the best the opponent can do
+				int maxScore = -1;
+				for(int i = 0; i < columnTasks.size(); i++){
+					maxScore = Math.max(maxScore, getResult(columnTasks.get(i)));
+				}
+				scores[c] = 100.0-maxScore;
+			}
+		}
+		if(symmetric){
+			for(int c = numColumns-(numColumns/2); c < numColumns; c++){
+				scores[c] = scores[numColumns-1-c];
+			}
+		}
+		return scores;
+	}
+
+	private int getResult(Future<Integer> task){
+		try{
+			return task.get().intValue();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("AI search was interrupted", e);
+		}
+		catch(ExecutionException e){
+			throw new RuntimeException("AI search failed", e.getCause());
+		}
+	}
+
+	private synchronized ExecutorService getExecutor(){
+		if(executor == null){
+			executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory(){
+				public Thread newThread(Runnable r){
+					//daemon threads so a forgotten AI doesn't keep the game from closing
+					Thread thread = new Thread(r, "AI search");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	//Stops the threads, they are started again if there is another search
+	public synchronized void shutdown(){
+		if(executor != null){
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	//Scores one column on a copy of the board
+	private class ColumnTask implements Callable<Integer> {
+		private final GameBoard board;
+		private final int column;
+		private final int checker;
+		private final int ply;
+
+		ColumnTask(GameBoard b, int argColumn, int argChecker, int argPly){
+			//the copy is made here so the caller can keep changing its board
+			board = new GameBoard(b);
+			column = argColumn;
+			checker = argChecker;
+			ply = argPly;
+		}
+
+		public Integer call(){
+			AlphaBetaSearch search = new AlphaBetaSearch();
+			search.setTranspositionTable(table);
+			search.setEvaluator(evaluator);
+			int score = search.scoreColumn(board, column, checker, ply);
+			nodes.addAndGet(search.getNodes());
+			cutoffs.addAndGet(search.getCutoffs());
+			tableProbes.addAndGet(search.getTableProbes());
+			tableHits.addAndGet(search.getTableHits());
+			return Integer.valueOf(score);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.pennypop.project;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads back the boards written by PositionWriter. The file is
+ * read through a direct buffer a large piece at a time and each board is
+ * put into a GameBoard the caller passes in, so going through millions of
+ * boards doesn't make a new object for each of them.
+ *
+ * @author Erik Gallegos
+ * */
+public class PositionReader implements Closeable {
+
+	private final FileInputStream input;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final int numRows;
+	private final int numColumns;
+	private final int connectNumber;
+	private final long[] words;
+	private boolean endOfFile;
+
+	/*
+	 * Opens the file and reads the size of the boards in it. Throws an IOException
+	 * if it isn't a file of boards
+	 * */
+	public PositionReader(File file) throws IOException{
+		input = new FileInputStream(file);
+		channel = input.getChannel();
+		buffer = ByteBuffer.allocateDirect(PositionWriter.BUFFER_SIZE);
+		//starts out empty so the first fill reads from the file
+		buffer.flip();
+		try{
+			if(!fill(PositionWriter.HEADER_SIZE) || buffer.getInt() != PositionWriter.MAGIC
+					|| buffer.getInt() != PositionWriter.VERSION){
+				throw new IOException("Not a file of boards: " + file);
+			}
+			numRows = buffer.getInt();
+			numColumns = buffer.getInt();
+			connectNumber = buffer.getInt();
+		}
+		catch(IOException e){
+			input.close();
+			throw e;
+		}
+		words = new long[GameBoard.encodedLength(numRows, numColumns)];
+	}
+
+	/*
+	 * Puts the next board in the file on the board, which has to be the size of
+	 * the boards in the file. Returns false at the end of the file
+	 * */
+	public boolean read(GameBoard b) throws IOException{
+		if(b.getNumRows() != numRows || b.getNumColumns() != numColumns
+				|| b.getConnectNumber() != connectNumber){
+			throw new IllegalArgumentException("Board is " + b.getNumRows() + "x" + b.getNumColumns()
+				+ " connect " + b.getConnectNumber() + ", the file is for " + numRows + "x" + numColumns
+				+ " connect " + connectNumber);
+		}
+		if(!read(words, 0)){
+			return false;
+		}
+		b.setEncoded(words, 0);
+		return true;
+	}
+
+	/*
+	 * Copies the next encoded board into the array starting at the offset without
+	 * making a GameBoard of it. Returns false at the end of the file
+	 * */
+	public boolean read(long[] encoded, int offset) throws IOException{
+		if(!fill(words.length*8)){
+			return false;
+		}
+		for(int i = 0; i < words.length; i++){
+			encoded[offset+i] = buffer.getLong();
+		}
+		return true;
+	}
+
+	/*
+	 * Makes sure the buffer has at least that many bytes, reading more of the file
+	 * if it doesn't. Returns false if the file ended cleanly and throws an
+	 * EOFException if it ended in the middle of a board
+	 * */
+	private boolean fill(int bytes) throws IOException{
+		if(buffer.remaining() >= bytes){
+			return true;
+		}
+		buffer.compact();
+		while(buffer.position() < bytes && !endOfFile){
+			if(channel.read(buffer) < 0){
+				endOfFile = true;
+			}
+		}
+		buffer.flip();
+		if(buffer.remaining() >= bytes){
+			return true;
+		}
+		if(buffer.hasRemaining()){
+			throw new EOFException("File of boards is cut short");
+		}
+		return false;
+	}
+
+	public int getNumRows(){
+		return numRows;
+	}
+
+	public int getNumColumns(){
+		return numColumns;
+	}
+
+	public int getConnectNumber(){
+		return connectNumber;
+	}
+
+	public void close() throws IOException{
+		input.close();
+	}
+}
@@ -0,0 +1,103 @@
+package com.pennypop.project;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class writes boards to a file in the compact form made by
+ * GameBoard.encode, so millions of game states or training positions can be
+ * kept without the size and the time of writing them out as strings. The
+ * boards are gathered in a direct buffer and written to the file channel
+ * when it fills up. All the boards in a file have to be the same size:
+ *
+ *   int magic, int version, int rows, int columns, int connect
+ *   then each board as GameBoard.encodedLength(rows, columns) longs
+ *
+ * The number of boards isn't written, PositionReader reads until the end of
+ * the file, so a file can be written one board at a time without knowing
+ * how many there will be.
+ *
+ * @author Erik Gallegos
+ * */
+public class PositionWriter implements Closeable {
+
+	static final int MAGIC = 0x43345053;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 5*4;
+	//big enough that the file is written in a few large pieces
+	static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileOutputStream output;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final int numRows;
+	private final int numColumns;
+	private final int connectNumber;
+	private final long[] words;
+	private long count;
+
+	public PositionWriter(File file, int rows, int columns, int argConnectNumber) throws IOException{
+		numRows = rows;
+		numColumns = columns;
+		connectNumber = argConnectNumber;
+		words = new long[GameBoard.encodedLength(rows, columns)];
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		output = new FileOutputStream(file);
+		channel = output.getChannel();
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(rows);
+		buffer.putInt(columns);
+		buffer.putInt(argConnectNumber);
+	}
+
+	//Adds the board to the file, it has to be the size the writer was made for
+	public void write(GameBoard b) throws IOException{
+		if(b.getNumRows() != numRows || b.getNumColumns() != numColumns
+				|| b.getConnectNumber() != connectNumber){
+			throw new IllegalArgumentException("Board is " + b.getNumRows() + "x" + b.getNumColumns()
+				+ " connect " + b.getConnectNumber() + ", the file is for " + numRows + "x" + numColumns
+				+ " connect " + connectNumber);
+		}
+		b.encode(words, 0);
+		write(words, 0);
+	}
+
+	//Adds a board that is already encoded, the words for one board starting at the offset
+	public void write(long[] encoded, int offset) throws IOException{
+		if(buffer.remaining() < words.length*8){
+			flush();
+		}
+		for(int i = 0; i < words.length; i++){
+			buffer.putLong(encoded[offset+i]);
+		}
+		count++;
+	}
+
+	//Writes out what is in the buffer
+	public void flush() throws IOException{
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	//Number of boards written so far
+	public long getCount(){
+		return count;
+	}
+
+	public void close() throws IOException{
+		try{
+			flush();
+		}
+		finally{
+			output.close();
+		}
+	}
+}
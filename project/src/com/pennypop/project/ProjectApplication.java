@@ -1,8 +1,12 @@
 package com.pennypop.project;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
 import com.badlogic.gdx.ApplicationListener;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.graphics.GL20;
@@ -11,45 +15,127 @@ import com.badlogic.gdx.graphics.GL20;
  * The {@link ApplicationListener} for this project, create(), resize() and
  * render() are the only methods that are relevant
  * 
+ * The textures, fonts and sounds are loaded once into GameAssets when the game
+ * starts, a bit every frame while the SplashScreen shows how far along it is,
+ * and the MainScreen is shown once they are done. The screens share them from
+ * then on. At the same time AIWarmup gets the AI ready on another thread so
+ * the first move of the first game isn't slow. How long it took from starting
+ * the JVM until the MainScreen could be used is printed.
+ * 
+ * Every frame is timed by a FrameProfiler, F3 shows what it measured on top
+ * of the screen. Started with frameLog=file it also writes the frame times
+ * to that file every few seconds
+ * 
  * @author Richard Taylor
  * */
 public class ProjectApplication extends Game implements ApplicationListener {
 
-	private Screen screen;
+	//how long AIWarmup keeps searching
+	private static final long WARMUP_MILLIS = 1500;
+
 	private Game game;
+	private final FrameProfiler profiler;
+	//made in create since it needs the graphics to be set up
+	private GameAssets assets;
+	//false until the assets are loaded and the MainScreen is shown
+	private boolean started;
+	private AIWarmup warmup;
+	//made the first time F3 is pressed
+	private FrameOverlay overlay;
+	private boolean showOverlay;
+	//so holding F3 down only switches the overlay once
+	private boolean overlayKeyDown;
 
 	public static void main(String[] args) {
-		new LwjglApplication(new ProjectApplication(), "PennyPop", 1280, 720,
+		ProjectApplication application = new ProjectApplication();
+		for(int i = 0; i < args.length; i++){
+			if(args[i].startsWith("frameLog=")){
+				application.profiler.setLogFile(new File(args[i].substring("frameLog=".length())));
+			}
+			else{
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		new LwjglApplication(application, "PennyPop", 1280, 720,
 				true);
 	}
 	
 	public ProjectApplication(){
 		//Since this class extends Game
 		game = this;
+		profiler = new FrameProfiler();
+	}
+	
+	//The screens tell it which phase of the frame they are in
+	public FrameProfiler getFrameProfiler(){
+		return profiler;
+	}
+	
+	//Shared by all the screens, see GameAssets
+	public GameAssets getAssets(){
+		return assets;
 	}
 
 	@Override
 	public void create() {
-		screen = new MainScreen(game);
-		setScreen(screen);
-		screen.show();
+		assets = new GameAssets();
+		assets.preload();
+		started = false;
+		warmup = new AIWarmup(WARMUP_MILLIS);
+		warmup.start();
+		setScreen(new SplashScreen(assets));
 	}
 
 	@Override
 	public void dispose() {
-		screen.hide();
-		screen.dispose();
+		Screen screen = getScreen();
+		if(screen != null){
+			screen.hide();
+			screen.dispose();
+		}
+		if(overlay != null){
+			overlay.dispose();
+		}
+		assets.dispose();
 	}
 
 	@Override
 	public void pause() {
-		screen.pause();
+		super.pause();
 	}
 
 	@Override
 	public void render() {
+		profiler.beginFrame();
 		clearWhite();
+		if(!started && assets.update()){
+			started = true;
+			Screen splash = getScreen();
+			setScreen(new MainScreen(game));
+			splash.dispose();
+			printStartTime();
+		}
 		super.render();
+		profiler.endFrame();
+		boolean keyDown = Gdx.input.isKeyPressed(Keys.F3);
+		if(keyDown && !overlayKeyDown){
+			showOverlay = !showOverlay;
+		}
+		overlayKeyDown = keyDown;
+		//drawn after the frame is timed so it doesn't count itself
+		if(showOverlay){
+			if(overlay == null){
+				overlay = new FrameOverlay();
+			}
+			overlay.draw(profiler, Gdx.graphics.getDeltaTime());
+		}
+	}
+
+	//Time to interactive, counted from when the JVM started so the class loading is in it too
+	private void printStartTime() {
+		long millis = System.currentTimeMillis()-ManagementFactory.getRuntimeMXBean().getStartTime();
+		System.out.println("MainScreen shown " + millis + " ms after starting, AI warm up "
+				+ (warmup.isDone() ? "took " + warmup.getMillis() + " ms" : "still running"));
 	}
 
 	/** Clears the screen with a white color */
@@ -60,11 +146,14 @@ public class ProjectApplication extends Game implements ApplicationListener {
 
 	@Override
 	public void resize(int width, int height) {
-		screen.resize(width, height);
+		super.resize(width, height);
+		if(overlay != null){
+			overlay.resize(width, height);
+		}
 	}
 
 	@Override
 	public void resume() {
-		screen.resume();
+		super.resume();
 	}
 }
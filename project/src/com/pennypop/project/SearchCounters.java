@@ -0,0 +1,145 @@
+package com.pennypop.project;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class adds up the SearchMetrics of every move it is told about. It is
+ * a SearchListener so it can be added to as many AIPlayers as needed, and
+ * every counter is an AtomicLong so the players can be on different threads
+ * while something else reads the totals. It can be registered as an MBean so
+ * JMX (or anything that reads JMX like a metrics library) can watch the AI.
+ *
+ * @author Erik Gallegos
+ * */
+public class SearchCounters implements SearchListener, SearchCountersMBean {
+
+	private final AtomicLong searches = new AtomicLong();
+	private final AtomicLong bookHits = new AtomicLong();
+	private final AtomicLong nodes = new AtomicLong();
+	private final AtomicLong cutoffs = new AtomicLong();
+	private final AtomicLong tableProbes = new AtomicLong();
+	private final AtomicLong tableHits = new AtomicLong();
+	private final AtomicLong depth = new AtomicLong();
+	private final AtomicLong winCheckNanos = new AtomicLong();
+	private final AtomicLong moveNanos = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void searchFinished(AIPlayer player, SearchMetrics metrics){
+		searches.incrementAndGet();
+		if(metrics.getSource().equals("BOOK")){
+			bookHits.incrementAndGet();
+		}
+		nodes.addAndGet(metrics.getNodes());
+		cutoffs.addAndGet(metrics.getCutoffs());
+		tableProbes.addAndGet(metrics.getTableProbes());
+		tableHits.addAndGet(metrics.getTableHits());
+		depth.addAndGet(metrics.getDepth());
+		winCheckNanos.addAndGet(metrics.getWinCheckNanos());
+		moveNanos.addAndGet(metrics.getMoveNanos());
+		totalNanos.addAndGet(metrics.getTotalNanos());
+		long time = metrics.getTotalNanos();
+		long max = maxNanos.get();
+		//another thread might change the max at the same time so try again if it did
+		while(time > max && !maxNanos.compareAndSet(max, time)){
+			max = maxNanos.get();
+		}
+	}
+
+	/*
+	 * Registers the counters with the platform MBean server under a name like
+	 * "com.pennypop.project:type=SearchCounters,name=hard"
+	 * */
+	public void register(String objectName){
+		try{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+		}
+		catch(JMException e){
+			throw new RuntimeException("Search counters couldn't be registered as " + objectName, e);
+		}
+	}
+
+	public long getSearches(){
+		return searches.get();
+	}
+
+	//Moves that came from the opening book without searching
+	public long getBookHits(){
+		return bookHits.get();
+	}
+
+	public long getNodes(){
+		return nodes.get();
+	}
+
+	public long getCutoffs(){
+		return cutoffs.get();
+	}
+
+	public double getTableHitRate(){
+		long probes = tableProbes.get();
+		if(probes == 0){
+			return 0.0;
+		}
+		return (double)tableHits.get()/probes;
+	}
+
+	public double getAverageDepth(){
+		long count = searches.get();
+		if(count == 0){
+			return 0.0;
+		}
+		return (double)depth.get()/count;
+	}
+
+	public long getWinCheckNanos(){
+		return winCheckNanos.get();
+	}
+
+	public long getMoveNanos(){
+		return moveNanos.get();
+	}
+
+	public long getTotalNanos(){
+		return totalNanos.get();
+	}
+
+	public double getAverageMillis(){
+		long count = searches.get();
+		if(count == 0){
+			return 0.0;
+		}
+		return totalNanos.get()/1e6/count;
+	}
+
+	//The slowest move since the counters were made or reset
+	public double getMaxMillis(){
+		return maxNanos.get()/1e6;
+	}
+
+	//Starts all the counters over, a move that finishes at the same time may be half counted
+	public void reset(){
+		searches.set(0);
+		bookHits.set(0);
+		nodes.set(0);
+		cutoffs.set(0);
+		tableProbes.set(0);
+		tableHits.set(0);
+		depth.set(0);
+		winCheckNanos.set(0);
+		moveNanos.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+
+	public String toString(){
+		return String.format("%d searches (%d from the book), %.1f average depth, %d nodes, %d cutoffs, "
+			+ "%.1f%% table hits, %.3f ms average, %.3f ms max, win checks %.1f ms, moves %.1f ms",
+			getSearches(), getBookHits(), getAverageDepth(), getNodes(), getCutoffs(), 100.0*getTableHitRate(),
+			getAverageMillis(), getMaxMillis(), getWinCheckNanos()/1e6, getMoveNanos()/1e6);
+	}
+}
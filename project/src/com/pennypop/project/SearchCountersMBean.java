@@ -0,0 +1,34 @@
+package com.pennypop.project;
+
+/**
+ * The numbers of a SearchCounters that can be read over JMX, see
+ * SearchCounters.register.
+ *
+ * @author Erik Gallegos
+ * */
+public interface SearchCountersMBean {
+
+	public long getSearches();
+
+	public long getBookHits();
+
+	public long getNodes();
+
+	public long getCutoffs();
+
+	public double getTableHitRate();
+
+	public double getAverageDepth();
+
+	public long getWinCheckNanos();
+
+	public long getMoveNanos();
+
+	public long getTotalNanos();
+
+	public double getAverageMillis();
+
+	public double getMaxMillis();
+
+	public void reset();
+}
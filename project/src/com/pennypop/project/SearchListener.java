@@ -0,0 +1,17 @@
+package com.pennypop.project;
+
+/**
+ * This interface is told about every move an AIPlayer works out, so what the
+ * AI is doing can be watched without changing the search. It is called on the
+ * thread that called nextMove, right after the move is picked.
+ *
+ * The SearchMetrics object is reused for the next move of the same AIPlayer,
+ * so a listener that wants to keep the numbers has to copy them out. A
+ * SearchCounters can be added as a listener to add up all the moves.
+ *
+ * @author Erik Gallegos
+ * */
+public interface SearchListener {
+
+	public void searchFinished(AIPlayer player, SearchMetrics metrics);
+}
@@ -0,0 +1,109 @@
+package com.pennypop.project;
+
+/**
+ * This class holds what one call to AIPlayer.nextMove cost and what it found:
+ * the boards it looked at, how deep it got, how often alpha-beta stopped
+ * early, how often the TranspositionTable had the board and the column that
+ * was picked with its score. When the Solver solved the board it also has
+ * the result the player to move gets with perfect play and how many moves
+ * are left until the game ends.
+ *
+ * The time spent checking for wins and adding and taking off pieces is only
+ * measured if the AIPlayer has detailed timing turned on, since looking at the
+ * clock for every board slows the search down. Otherwise they are 0.
+ *
+ * @author Erik Gallegos
+ * */
+public class SearchMetrics {
+
+	//"BOOK" if the opening book had the board, "PONDER" if ponder already searched it, otherwise the search that was used
+	String source;
+	int column;
+	double score;
+	long nodes;
+	//the ply that was finished, for the solver the moves left until the end of the game
+	int depth;
+	//"WIN", "LOSS" or "TIE" for the player to move if the solver solved the board, otherwise null
+	String result;
+	//moves until the game ends with perfect play counting the last one, -1 if it wasn't solved
+	int movesToEnd;
+	long cutoffs;
+	long tableProbes;
+	long tableHits;
+	long winCheckNanos;
+	long moveNanos;
+	long totalNanos;
+
+	public String getSource(){
+		return source;
+	}
+
+	//The column the AI picked
+	public int getColumn(){
+		return column;
+	}
+
+	//The score of the column the AI picked
+	public double getScore(){
+		return score;
+	}
+
+	public long getNodes(){
+		return nodes;
+	}
+
+	public int getDepth(){
+		return depth;
+	}
+
+	public String getResult(){
+		return result;
+	}
+
+	public int getMovesToEnd(){
+		return movesToEnd;
+	}
+
+	public long getCutoffs(){
+		return cutoffs;
+	}
+
+	public long getTableProbes(){
+		return tableProbes;
+	}
+
+	public long getTableHits(){
+		return tableHits;
+	}
+
+	public double getTableHitRate(){
+		if(tableProbes == 0){
+			return 0.0;
+		}
+		return (double)tableHits/tableProbes;
+	}
+
+	//Time spent in winsFor and lastMoveWins, 0 without detailed timing
+	public long getWinCheckNanos(){
+		return winCheckNanos;
+	}
+
+	//Time spent in addMove and delMove, 0 without detailed timing
+	public long getMoveNanos(){
+		return moveNanos;
+	}
+
+	//Time the whole nextMove took
+	public long getTotalNanos(){
+		return totalNanos;
+	}
+
+	public String toString(){
+		String text = String.format("%s column %d score %.1f depth %d nodes %d cutoffs %d table hits %.1f%% time %.3f ms",
+			source, column, score, depth, nodes, cutoffs, 100.0*getTableHitRate(), totalNanos/1e6);
+		if(result != null){
+			text += " " + result + " in " + movesToEnd;
+		}
+		return text;
+	}
+}
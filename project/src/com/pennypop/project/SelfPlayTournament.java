@@ -0,0 +1,302 @@
+package com.pennypop.project;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class plays AIPlayers against each other without any screen so the AI
+ * can be tested and timed. The games are played on several threads at once
+ * and at the end the wins, losses and ties are printed together with games
+ * and boards (nodes) per second and how long the moves took.
+ *
+ * The players are given as SEARCH:PLY:TIEBREAK, with an optional time limit
+ * in milliseconds at the end, for example ALPHABETA:8:RANDOM:100. The two
+ * players take turns going first. Everything is set with key=value arguments:
+ *
+ *   games=100 threads=4 rows=6 columns=7 connect=4 seed=1 table=16
+ *   playerA=ALPHABETA:8:RANDOM playerB=MINIMAX:5:RANDOM
+ *
+ * table is the size in MB of a TranspositionTable for each player, 0 for none.
+ * evaluatorA=THREAT and evaluatorB=THREAT give a player the ThreatEvaluator,
+ * NONE (the default) scores the boards at the end of the ply as ties.
+ * bookA=file and bookB=file give a player an OpeningBook. timing=true also
+ * measures the time the players spend checking for wins and making moves.
+ * With the same seed the same games are played every time.
+ *
+ * @author Erik Gallegos
+ * */
+public class SelfPlayTournament {
+
+	private int games = 100;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int numRows = 6;
+	private int numColumns = 7;
+	private int connectNumber = 4;
+	private long seed = 1;
+	private int tableMegabytes = 0;
+	private String playerA = "ALPHABETA:8:RANDOM";
+	private String playerB = "MINIMAX:5:RANDOM";
+	private String evaluatorA = "NONE";
+	private String evaluatorB = "NONE";
+	//loaded once and shared by all the games, null for none
+	private OpeningBook bookA;
+	private OpeningBook bookB;
+	private boolean timing = false;
+	//added up over all the games of each player
+	private final SearchCounters countersA = new SearchCounters();
+	private final SearchCounters countersB = new SearchCounters();
+
+	public static void main(String[] args){
+		SelfPlayTournament tournament = new SelfPlayTournament();
+		for(int i = 0; i < args.length; i++){
+			tournament.setOption(args[i]);
+		}
+		tournament.run();
+	}
+
+	public void setOption(String option){
+		int split = option.indexOf('=');
+		if(split < 0){
+			throw new IllegalArgumentException("Options look like key=value: " + option);
+		}
+		String key = option.substring(0, split);
+		String value = option.substring(split+1);
+		if(key.equals("games")){
+			games = Integer.parseInt(value);
+		}
+		else if(key.equals("threads")){
+			threads = Integer.parseInt(value);
+		}
+		else if(key.equals("rows")){
+			numRows = Integer.parseInt(value);
+		}
+		else if(key.equals("columns")){
+			numColumns = Integer.parseInt(value);
+		}
+		else if(key.equals("connect")){
+			connectNumber = Integer.parseInt(value);
+		}
+		else if(key.equals("seed")){
+			seed = Long.parseLong(value);
+		}
+		else if(key.equals("table")){
+			tableMegabytes = Integer.parseInt(value);
+		}
+		else if(key.equals("playerA")){
+			playerA = value;
+		}
+		else if(key.equals("playerB")){
+			playerB = value;
+		}
+		else if(key.equals("evaluatorA")){
+			evaluatorA = value;
+		}
+		else if(key.equals("evaluatorB")){
+			evaluatorB = value;
+		}
+		else if(key.equals("bookA")){
+			bookA = loadBook(value);
+		}
+		else if(key.equals("bookB")){
+			bookB = loadBook(value);
+		}
+		else if(key.equals("timing")){
+			timing = Boolean.parseBoolean(value);
+		}
+		else{
+			throw new IllegalArgumentException("Unknown option: " + key);
+		}
+	}
+
+	public void run(){
+		System.out.println("Playing " + games + " games of " + playerA + " against " + playerB + " on a "
+			+ numRows + "x" + numColumns + " board, connect " + connectNumber + ", " + threads + " threads");
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<GameResult>> results = new ArrayList<Future<GameResult>>();
+		long start = System.nanoTime();
+		for(int g = 0; g < games; g++){
+			results.add(pool.submit(new GameTask(g)));
+		}
+		int winsA = 0;
+		int winsB = 0;
+		int ties = 0;
+		long nodes = 0;
+		long searchTime = 0;
+		List<long[]> movesA = new ArrayList<long[]>();
+		List<long[]> movesB = new ArrayList<long[]>();
+		try{
+			for(int g = 0; g < games; g++){
+				GameResult result = results.get(g).get();
+				if(result.winner == 'A'){
+					winsA++;
+				}
+				else if(result.winner == 'B'){
+					winsB++;
+				}
+				else{
+					ties++;
+				}
+				nodes += result.nodes;
+				movesA.add(result.moveTimesA);
+				movesB.add(result.moveTimesB);
+				searchTime += sum(result.moveTimesA)+sum(result.moveTimesB);
+			}
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Tournament was interrupted", e);
+		}
+		catch(ExecutionException e){
+			throw new RuntimeException("A game failed", e.getCause());
+		}
+		finally{
+			pool.shutdown();
+		}
+		double seconds = (System.nanoTime()-start)/1e9;
+		System.out.println(playerA + " won " + winsA + ", " + playerB + " won " + winsB + ", ties " + ties);
+		System.out.println(String.format("%.1f games per second, %.0f nodes per second of search time, %.0f nodes per second overall",
+			games/seconds, nodes/(searchTime/1e9), nodes/seconds));
+		printLatency(playerA, movesA);
+		printLatency(playerB, movesB);
+		System.out.println(playerA + ": " + countersA);
+		System.out.println(playerB + ": " + countersB);
+	}
+
+	//Prints the percentiles of how long the moves of one player took
+	private void printLatency(String player, List<long[]> moveTimes){
+		int count = 0;
+		for(int i = 0; i < moveTimes.size(); i++){
+			count += moveTimes.get(i).length;
+		}
+		if(count == 0){
+			return;
+		}
+		long[] all = new long[count];
+		int next = 0;
+		for(int i = 0; i < moveTimes.size(); i++){
+			long[] times = moveTimes.get(i);
+			System.arraycopy(times, 0, all, next, times.length);
+			next += times.length;
+		}
+		Arrays.sort(all);
+		System.out.println(String.format("%s move time in ms: p50 %.3f p90 %.3f p99 %.3f max %.3f (%d moves)",
+			player, percentile(all, 50)/1e6, percentile(all, 90)/1e6, percentile(all, 99)/1e6,
+			all[all.length-1]/1e6, count));
+	}
+
+	private static long percentile(long[] sorted, int percent){
+		int index = (int)Math.ceil(percent/100.0*sorted.length)-1;
+		return sorted[Math.max(0, Math.min(sorted.length-1, index))];
+	}
+
+	private static long sum(long[] values){
+		long total = 0;
+		for(int i = 0; i < values.length; i++){
+			total += values[i];
+		}
+		return total;
+	}
+
+	private static OpeningBook loadBook(String fileName){
+		try{
+			return OpeningBook.load(new File(fileName));
+		}
+		catch(IOException e){
+			throw new RuntimeException("Opening book couldn't be loaded: " + fileName, e);
+		}
+	}
+	
+	//Makes an AIPlayer from SEARCH:PLY:TIEBREAK[:TIMELIMIT]
+	private AIPlayer createPlayer(String spec, String evaluator, OpeningBook book, SearchCounters counters,
+			int checker, long playerSeed){
+		String[] parts = spec.split(":");
+		if(parts.length < 3){
+			throw new IllegalArgumentException("Players look like SEARCH:PLY:TIEBREAK: " + spec);
+		}
+		AIPlayer player = new AIPlayer(checker, parts[2], Integer.parseInt(parts[1]), parts[0]);
+		//every game is already on its own thread
+		player.setThreadCount(1);
+		player.setSeed(playerSeed);
+		if(parts.length > 3){
+			player.setTimeLimit(Long.parseLong(parts[3]));
+		}
+		if(evaluator.equals("THREAT")){
+			player.setEvaluator(new ThreatEvaluator());
+		}
+		else if(!evaluator.equals("NONE")){
+			throw new IllegalArgumentException("Evaluators are THREAT or NONE: " + evaluator);
+		}
+		player.setOpeningBook(book);
+		player.addSearchListener(counters);
+		player.setDetailedTiming(timing);
+		if(tableMegabytes > 0){
+			player.setTranspositionTable(new TranspositionTable(tableMegabytes*1024L*1024L));
+		}
+		return player;
+	}
+
+	//What happened in one game
+	private static class GameResult {
+		//'A', 'B' or 'T' for a tie
+		char winner;
+		long nodes;
+		long[] moveTimesA;
+		long[] moveTimesB;
+	}
+
+	//Plays one game, player A goes first in the even games
+	private class GameTask implements Callable<GameResult> {
+		private final int gameNumber;
+
+		GameTask(int argGameNumber){
+			gameNumber = argGameNumber;
+		}
+
+		public GameResult call(){
+			boolean aFirst = gameNumber%2 == 0;
+			AIPlayer a = createPlayer(playerA, evaluatorA, bookA, countersA, aFirst ? 1 : 2, seed*31+gameNumber*2);
+			AIPlayer b = createPlayer(playerB, evaluatorB, bookB, countersB, aFirst ? 2 : 1, seed*31+gameNumber*2+1);
+			GameBoard board = new GameBoard(numRows, numColumns, connectNumber);
+			long[] timesA = new long[numRows*numColumns];
+			long[] timesB = new long[numRows*numColumns];
+			int movesA = 0;
+			int movesB = 0;
+			GameResult result = new GameResult();
+			result.winner = 'T';
+			int turn = 1;
+			while(!board.isFull()){
+				boolean aTurn = (turn == 1) == aFirst;
+				AIPlayer player = aTurn ? a : b;
+				long start = System.nanoTime();
+				int column = player.nextMove(board);
+				long time = System.nanoTime()-start;
+				if(aTurn){
+					timesA[movesA++] = time;
+				}
+				else{
+					timesB[movesB++] = time;
+				}
+				board.addMove(column, turn);
+				if(board.lastMoveWins()){
+					result.winner = aTurn ? 'A' : 'B';
+					break;
+				}
+				turn = 3-turn;
+			}
+			result.nodes = a.getNodes()+b.getNodes();
+			result.moveTimesA = Arrays.copyOf(timesA, movesA);
+			result.moveTimesB = Arrays.copyOf(timesB, movesB);
+			a.shutdown();
+			b.shutdown();
+			return result;
+		}
+	}
+}
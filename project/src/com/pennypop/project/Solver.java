@@ -0,0 +1,418 @@
+package com.pennypop.project;
+
+/**
+ * This class solves a board exactly instead of looking a few ply ahead, it
+ * finds out if the player to move wins, loses or ties when both players make
+ * the best moves and how many moves it takes. It only works on boards that
+ * fit in a BitBoard (like the normal 6x7 board) since it searches on the bits
+ * directly without going through the GameBoard.
+ *
+ * The score of a board is 0 for a tie, positive if the player to move wins
+ * and negative if they lose. The sooner the win the bigger the score: winning
+ * with the last spot on the board is 1, winning one move earlier is 2 and so
+ * on, movesToEnd turns a score back into the number of moves.
+ *
+ * The search is a negamax with alpha-beta that is only ever asked if the score
+ * is above a guess (a null window), and the guesses close in on the score like
+ * a binary search. To keep it fast:
+ *
+ *   moves that let the opponent win right away are never searched
+ *   a move that has to be made to block the opponent is the only one searched
+ *   moves that make the most new ways to win are searched first
+ *   bounds are kept in a big TranspositionTable keyed by the exact board
+ *
+ * A time limit can be set, if the board can't be solved in time scoresFor
+ * gives up and returns false so the AIPlayer can search instead.
+ *
+ * @author Erik Gallegos
+ * */
+public class Solver {
+
+	//how many boards are searched between looking at the clock
+	private static final int NODES_PER_TIME_CHECK = 4096;
+
+	//made the first time a board is solved, so a Solver that is never used takes no memory
+	private TranspositionTable table;
+	private final long tableBytes;
+	private int numRows;
+	private int numColumns;
+	private int connectNumber;
+	//bits used by one column including the empty top bit, like in BitBoard
+	private int columnHeight;
+	//the bottom spot of every column, and every spot on the board
+	private long bottomMask;
+	private long boardMask;
+	//columns in the order they are searched, center first
+	private int[] moveOrder;
+	//the moves and their ordering scores at each height so nothing is created while searching
+	private long[][] moveBuffers;
+	private int[][] moveScores;
+
+	//System.nanoTime() when the search has to stop, 0 if there is no time limit
+	private long deadline;
+	private boolean outOfTime;
+	//set from another thread to make the search give up, see stop
+	private volatile boolean stopped;
+	private long nodes;
+	//times a board was left early because a move scored at least beta
+	private long cutoffs;
+	//lookups in the table and how many found the board
+	private long tableProbes;
+	private long tableHits;
+
+	public Solver(long argTableBytes){
+		tableBytes = argTableBytes;
+	}
+
+	//The board can be solved if it fits in a BitBoard
+	public static boolean canSolve(GameBoard b){
+		return b.getBitBoard() != null;
+	}
+
+	/*
+	 * Solves the board for the checker, who has to be the one to move next and
+	 * nobody can have won yet. Returns the score described above
+	 * */
+	public int solve(GameBoard b, int checker){
+		setBoardSize(b);
+		deadline = 0;
+		outOfTime = false;
+		table.newSearch();
+		BitBoard bits = b.getBitBoard();
+		return solve(bits.getStones(checker), bits.getStones(1) | bits.getStones(2), bits.getMoveCount());
+	}
+
+	/*
+	 * Scores every column for the checker on the same scale as the other searches
+	 * of the AIPlayer: 50 for a tie, above 50 for a win (the sooner the higher)
+	 * and below 50 for a loss, -1 for a full column. Returns false without a
+	 * score if the time limit ran out first, 0 is no time limit
+	 * */
+	public boolean scoresFor(GameBoard b, int checker, long timeLimitMillis, double[] scores){
+		setBoardSize(b);
+		outOfTime = false;
+		deadline = timeLimitMillis > 0 ? System.nanoTime()+timeLimitMillis*1000000L : 0;
+		table.newSearch();
+		BitBoard bits = b.getBitBoard();
+		long current = bits.getStones(checker);
+		long mask = bits.getStones(1) | bits.getStones(2);
+		int moves = bits.getMoveCount();
+		int opponent = 3-checker;
+		//a board that already has a winner gets the same score for every column like the other searches
+		boolean hasWinner = b.winsFor(checker) || b.winsFor(opponent);
+		for(int c = 0; c < numColumns && !outOfTime; c++){
+			long move = (mask+bottomMask) & columnMask(c);
+			if(move == 0){
+				scores[c] = -1.0;
+			}
+			else if(hasWinner){
+				scores[c] = b.winsFor(checker) ? 100.0 : 0.0;
+			}
+			else if((winningSpots(current, mask) & move) != 0){
+				scores[c] = 50.0+(numRows*numColumns+1-moves)/2;
+			}
+			else{
+				//the opponent's score after the move, turned around
+				scores[c] = 50.0-solve(current ^ mask, mask | move, moves+1);
+			}
+		}
+		deadline = 0;
+		return !outOfTime;
+	}
+
+	/*
+	 * Makes scoresFor running on another thread give up like it ran out of time
+	 * and return false. It keeps giving up right away until clearStop is called
+	 * */
+	public void stop(){
+		stopped = true;
+	}
+
+	public void clearStop(){
+		stopped = false;
+	}
+
+	/*
+	 * How many more moves the game lasts from the board if it has the score,
+	 * counting the winning move. For a tie it is the moves left until the board
+	 * is full
+	 * */
+	public static int movesToEnd(int score, GameBoard b){
+		int spots = b.getNumRows()*b.getNumColumns();
+		int moveCount = b.getMoveCount();
+		if(score == 0){
+			return spots-moveCount;
+		}
+		//the player who wins moves first if the score is positive, second if not
+		int winnerMoves = score > 0 ? moveCount : moveCount+1;
+		int points = Math.abs(score);
+		//pieces on the board just before the winning move, matching whose turn it is
+		int beforeWin = spots+1-2*points;
+		if(beforeWin%2 != winnerMoves%2){
+			beforeWin--;
+		}
+		return beforeWin-moveCount+1;
+	}
+
+	//Number of boards looked at since the Solver was made
+	public long getNodes(){
+		return nodes;
+	}
+
+	public long getCutoffs(){
+		return cutoffs;
+	}
+
+	//Times the search looked in the TranspositionTable, counted by the solver even if the table is shared
+	public long getTableProbes(){
+		return tableProbes;
+	}
+
+	public long getTableHits(){
+		return tableHits;
+	}
+
+	//null until the first board is solved
+	public TranspositionTable getTranspositionTable(){
+		return table;
+	}
+
+	//Solves a board where the player to move has the current pieces
+	private int solve(long current, long mask, int moves){
+		int spots = numRows*numColumns;
+		if((winningSpots(current, mask) & possibleMoves(mask)) != 0){
+			return (spots+1-moves)/2;
+		}
+		int min = -(spots-moves)/2;
+		int max = (spots+1-moves)/2;
+		//close in on the score, each search only tells if the score is above the guess
+		while(min < max && !outOfTime){
+			int guess = min+(max-min)/2;
+			//guesses closer to 0 first since most boards are close to a tie
+			if(guess <= 0 && min/2 < guess){
+				guess = min/2;
+			}
+			else if(guess >= 0 && max/2 > guess){
+				guess = max/2;
+			}
+			int score = negamax(current, mask, moves, guess, guess+1, 0);
+			if(score <= guess){
+				max = score;
+			}
+			else{
+				min = score;
+			}
+		}
+		return min;
+	}
+
+	/*
+	 * The score of the board if it is between alpha and beta, otherwise a bound on
+	 * it. The player to move can't win with their next move, solve checks that
+	 * */
+	private int negamax(long current, long mask, int moves, int alpha, int beta, int height){
+		nodes++;
+		if(nodes%NODES_PER_TIME_CHECK == 0 && (stopped || (deadline != 0 && System.nanoTime() > deadline))){
+			outOfTime = true;
+		}
+		if(outOfTime){
+			return 0;
+		}
+		int spots = numRows*numColumns;
+		long safe = safeMoves(current, mask);
+		//every move lets the opponent win
+		if(safe == 0){
+			return -(spots-moves)/2;
+		}
+		//with two spots left and no way to lose it is a tie
+		if(moves >= spots-2){
+			return 0;
+		}
+		//the opponent can't win right away so the score can't be any lower than this
+		int min = -(spots-2-moves)/2;
+		if(alpha < min){
+			alpha = min;
+			if(alpha >= beta){
+				return alpha;
+			}
+		}
+		//and we can't win right away so it can't be any higher than this
+		int max = (spots-1-moves)/2;
+		//current+mask is different for every board but its low bits only depend on the first
+		//columns, and the table picks the slot from the low bits, so mix all the bits into them
+		long key = GameBoard.mix(current+mask);
+		long entry = table.probe(key);
+		tableProbes++;
+		if(entry != 0){
+			tableHits++;
+			int bound = TranspositionTable.getBound(entry);
+			int score = TranspositionTable.getScore(entry);
+			if(bound != TranspositionTable.LOWER){
+				max = Math.min(max, score);
+			}
+			if(bound != TranspositionTable.UPPER){
+				min = Math.max(min, score);
+			}
+			if(min >= max){
+				return min;
+			}
+			if(alpha < min){
+				alpha = min;
+				if(alpha >= beta){
+					return alpha;
+				}
+			}
+		}
+		if(beta > max){
+			beta = max;
+			if(alpha >= beta){
+				return beta;
+			}
+		}
+		int count = orderMoves(current, mask, safe, height);
+		long[] orderedMoves = moveBuffers[height];
+		for(int i = 0; i < count; i++){
+			long move = orderedMoves[i];
+			//the opponent moves next so their pieces become the current ones
+			int score = -negamax(current ^ mask, mask | move, moves+1, -beta, -alpha, height+1);
+			if(outOfTime){
+				return 0;
+			}
+			if(score >= beta){
+				cutoffs++;
+				table.store(key, spots-moves, TranspositionTable.LOWER, score, -1);
+				return score;
+			}
+			if(score > alpha){
+				alpha = score;
+			}
+		}
+		table.store(key, spots-moves, TranspositionTable.UPPER, alpha, -1);
+		return alpha;
+	}
+
+	/*
+	 * Puts the safe moves in the move buffer for the height, the ones that make the
+	 * most new winning spots first and the center first when it is a tie.
+	 * Returns how many there are
+	 * */
+	private int orderMoves(long current, long mask, long safe, int height){
+		long[] orderedMoves = moveBuffers[height];
+		int[] scores = moveScores[height];
+		int count = 0;
+		for(int i = 0; i < numColumns; i++){
+			long move = safe & columnMask(moveOrder[i]);
+			if(move == 0){
+				continue;
+			}
+			int score = Long.bitCount(winningSpots(current | move, mask | move));
+			int j = count;
+			while(j > 0 && scores[j-1] < score){
+				orderedMoves[j] = orderedMoves[j-1];
+				scores[j] = scores[j-1];
+				j--;
+			}
+			orderedMoves[j] = move;
+			scores[j] = score;
+			count++;
+		}
+		return count;
+	}
+
+	/*
+	 * The moves that don't let the opponent win on their next move. If the opponent
+	 * could win somewhere we have to block it, if there are two places it is lost
+	 * */
+	private long safeMoves(long current, long mask){
+		long possible = possibleMoves(mask);
+		long opponentWins = winningSpots(current ^ mask, mask);
+		long forced = possible & opponentWins;
+		if(forced != 0){
+			if((forced & (forced-1)) != 0){
+				return 0;
+			}
+			possible = forced;
+		}
+		//don't play right under a spot where the opponent would win
+		return possible & ~(opponentWins >>> 1);
+	}
+
+	//The spot each column's next piece goes in
+	private long possibleMoves(long mask){
+		return (mask+bottomMask) & boardMask;
+	}
+
+	/*
+	 * The empty spots that would finish a line for the pieces. For every direction
+	 * and every place the spot can have in a line, the spot is shifted over each
+	 * of the other connectNumber-1 spots of the line and they all have to be pieces
+	 * */
+	private long winningSpots(long pieces, long mask){
+		long spots = 0;
+		spots |= winningSpots(pieces, 1);
+		spots |= winningSpots(pieces, columnHeight);
+		spots |= winningSpots(pieces, columnHeight-1);
+		spots |= winningSpots(pieces, columnHeight+1);
+		return spots & (boardMask ^ mask);
+	}
+
+	private long winningSpots(long pieces, int direction){
+		long spots = 0;
+		for(int first = 0; first < connectNumber; first++){
+			//the spot is number first of the line, the others are the rest
+			long line = -1L;
+			for(int i = 0; i < connectNumber && line != 0; i++){
+				if(i != first){
+					line &= shift(pieces, (i-first)*direction);
+				}
+			}
+			spots |= line;
+		}
+		return spots;
+	}
+
+	//Moves the bit at spot+distance to spot, bits that go off the end are lost
+	private static long shift(long bits, int distance){
+		if(distance >= 64 || distance <= -64){
+			return 0;
+		}
+		return distance > 0 ? bits >>> distance : bits << -distance;
+	}
+
+	//The spots of one column
+	private long columnMask(int column){
+		return ((1L << numRows)-1) << (column*columnHeight);
+	}
+
+	//Sets up the masks and buffers the first time or when the board size changes
+	private void setBoardSize(GameBoard b){
+		if(!canSolve(b)){
+			throw new IllegalArgumentException("The solver only works on boards that fit in a BitBoard");
+		}
+		if(table == null){
+			table = new TranspositionTable(tableBytes);
+		}
+		if(moveOrder != null && b.getNumRows() == numRows && b.getNumColumns() == numColumns
+				&& b.getConnectNumber() == connectNumber){
+			return;
+		}
+		//the keys of a different size of board mean something else
+		table.clear();
+		numRows = b.getNumRows();
+		numColumns = b.getNumColumns();
+		connectNumber = b.getConnectNumber();
+		columnHeight = numRows+1;
+		bottomMask = 0;
+		for(int c = 0; c < numColumns; c++){
+			bottomMask |= 1L << (c*columnHeight);
+		}
+		boardMask = bottomMask*((1L << numRows)-1);
+		moveOrder = new int[numColumns];
+		for(int i = 0; i < numColumns; i++){
+			moveOrder[i] = numColumns/2 + (1-2*(i%2))*(i+1)/2;
+		}
+		//one height for every spot on the board plus the one below the last
+		moveBuffers = new long[numRows*numColumns+1][numColumns];
+		moveScores = new int[numRows*numColumns+1][numColumns];
+	}
+}
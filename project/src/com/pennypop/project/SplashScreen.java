@@ -0,0 +1,82 @@
+package com.pennypop.project;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.math.Matrix4;
+
+/**
+ * This class is shown while GameAssets loads when the game starts. It only
+ * uses the font that comes with LibGDX and a ShapeRenderer, so it can be
+ * drawn right away, and shows how much has been loaded with a bar.
+ * ProjectApplication changes to the MainScreen once everything is loaded.
+ *
+ * @author Erik Gallegos
+ * */
+public class SplashScreen implements Screen {
+
+	private static final int BAR_WIDTH = 400;
+	private static final int BAR_HEIGHT = 20;
+
+	private final GameAssets assets;
+	private final ShapeRenderer shapes;
+	private final BitmapFont font;
+	private final Matrix4 projection = new Matrix4();
+
+	public SplashScreen(GameAssets argAssets){
+		assets = argAssets;
+		shapes = new ShapeRenderer();
+		font = new BitmapFont();
+		font.setColor(Color.BLACK);
+	}
+
+	@Override
+	public void render(float delta){
+		int x = (Gdx.graphics.getWidth()-BAR_WIDTH)/2;
+		int y = Gdx.graphics.getHeight()/2-BAR_HEIGHT/2;
+		shapes.begin(ShapeType.FilledRectangle);
+		shapes.setColor(Color.LIGHT_GRAY);
+		shapes.filledRect(x, y, BAR_WIDTH, BAR_HEIGHT);
+		shapes.setColor(Color.RED);
+		shapes.filledRect(x, y, BAR_WIDTH*assets.getProgress(), BAR_HEIGHT);
+		shapes.end();
+		//the shared batch is already loaded by the time the splash is drawn
+		SpriteBatch batch = assets.getSpriteBatch();
+		batch.setProjectionMatrix(projection);
+		batch.begin();
+		font.draw(batch, "Loading", x, y+BAR_HEIGHT+30);
+		batch.end();
+	}
+
+	@Override
+	public void resize(int width, int height){
+		projection.setToOrtho2D(0, 0, width, height);
+		shapes.setProjectionMatrix(projection);
+	}
+
+	@Override
+	public void show(){
+	}
+
+	@Override
+	public void hide(){
+	}
+
+	@Override
+	public void pause(){
+	}
+
+	@Override
+	public void resume(){
+	}
+
+	@Override
+	public void dispose(){
+		shapes.dispose();
+		font.dispose();
+	}
+}
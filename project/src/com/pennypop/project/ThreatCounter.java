@@ -0,0 +1,196 @@
+package com.pennypop.project;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps count of the open windows on a GameBoard. A window is any
+ * connectNumber spots in a line (horizontal, vertical or diagonal) and it is
+ * open for a player if the other player has no piece in it, so it could still
+ * become a win. The counts are kept by how many pieces the player has in the
+ * window.
+ *
+ * The GameBoard updates the counts on every addMove and delMove by only
+ * looking at the windows through that spot, so reading them never has to go
+ * over the whole board. The windows through each spot never change for a
+ * size of board, so they are made once for each size and shared by every
+ * counter.
+ *
+ * @author Erik Gallegos
+ * */
+public class ThreatCounter {
+
+	//the spotWindows of each size of board, keyed by the rows, columns and connect number
+	private static final ConcurrentHashMap<Long, int[][]> WINDOWS = new ConcurrentHashMap<Long, int[][]>();
+
+	private final int connectNumber;
+	//the windows going through each spot, the spot is row*numColumns+column
+	private final int[][] spotWindows;
+	private final int windowCount;
+	//pieces of each player in each window, index 0 is not used
+	private final int[][] pieces;
+	//[checker][n] is the number of windows open for the checker with n of their pieces
+	private final int[][] openWindows;
+
+	public ThreatCounter(int rows, int columns, int argConnectNumber){
+		connectNumber = argConnectNumber;
+		spotWindows = sharedWindows(rows, columns, argConnectNumber);
+		int count = 0;
+		for(int i = 0; i < spotWindows.length; i++){
+			for(int j = 0; j < spotWindows[i].length; j++){
+				count = Math.max(count, spotWindows[i][j]+1);
+			}
+		}
+		windowCount = count;
+		pieces = new int[3][windowCount];
+		openWindows = new int[3][argConnectNumber+1];
+		clear();
+	}
+
+	//Copy constructor, the windows never change so they are shared
+	public ThreatCounter(ThreatCounter other){
+		connectNumber = other.connectNumber;
+		spotWindows = other.spotWindows;
+		windowCount = other.windowCount;
+		pieces = new int[3][];
+		openWindows = new int[3][];
+		for(int i = 0; i < 3; i++){
+			pieces[i] = other.pieces[i].clone();
+			openWindows[i] = other.openWindows[i].clone();
+		}
+	}
+
+	//The windows of this size of board, made the first time they are needed
+	private static int[][] sharedWindows(int rows, int columns, int connect){
+		Long key = Long.valueOf(((long)rows << 42) | ((long)columns << 21) | connect);
+		int[][] windows = WINDOWS.get(key);
+		if(windows == null){
+			windows = createWindows(rows, columns, connect);
+			//another thread may have made them at the same time, use whichever got in first
+			int[][] existing = WINDOWS.putIfAbsent(key, windows);
+			if(existing != null){
+				windows = existing;
+			}
+		}
+		return windows;
+	}
+
+	/*
+	 * Finds every window on the board and lists them for each spot they go
+	 * through. Windows are numbered in the order they are found
+	 * */
+	private static int[][] createWindows(int rows, int columns, int connect){
+		//right, down, down right and down left
+		int[] rowSteps = {0, 1, 1, 1};
+		int[] columnSteps = {1, 0, 1, -1};
+		int[] windowsPerSpot = new int[rows*columns];
+		int[][] spotWindows = new int[rows*columns][];
+		//the first time through counts the windows of each spot, the second fills them in
+		for(int pass = 0; pass < 2; pass++){
+			int window = 0;
+			for(int d = 0; d < rowSteps.length; d++){
+				for(int r = 0; r < rows; r++){
+					for(int c = 0; c < columns; c++){
+						int endRow = r+rowSteps[d]*(connect-1);
+						int endColumn = c+columnSteps[d]*(connect-1);
+						if(endRow < 0 || endRow >= rows || endColumn < 0 || endColumn >= columns){
+							continue;
+						}
+						for(int i = 0; i < connect; i++){
+							int spot = (r+rowSteps[d]*i)*columns+c+columnSteps[d]*i;
+							if(pass == 0){
+								windowsPerSpot[spot]++;
+							}
+							else{
+								spotWindows[spot][--windowsPerSpot[spot]] = window;
+							}
+						}
+						window++;
+					}
+				}
+			}
+			if(pass == 0){
+				for(int s = 0; s < spotWindows.length; s++){
+					spotWindows[s] = new int[windowsPerSpot[s]];
+				}
+			}
+		}
+		return spotWindows;
+	}
+
+	//Starts over with every window empty and open for both players
+	public void clear(){
+		for(int i = 0; i < 3; i++){
+			Arrays.fill(pieces[i], 0);
+			Arrays.fill(openWindows[i], 0);
+		}
+		openWindows[1][0] = windowCount;
+		openWindows[2][0] = windowCount;
+	}
+
+	//Counts the pieces on the board from scratch, the board has to be the size of the counter
+	public void countAll(GameBoard b){
+		clear();
+		int columns = b.getNumColumns();
+		for(int r = 0; r < b.getNumRows(); r++){
+			for(int c = 0; c < columns; c++){
+				int color = b.getColor(r, c);
+				if(color != 0){
+					add(r*columns+c, color);
+				}
+			}
+		}
+	}
+
+	//A piece of the checker was added to the spot
+	public void add(int spot, int checker){
+		int opponent = 3-checker;
+		int[] windows = spotWindows[spot];
+		for(int i = 0; i < windows.length; i++){
+			int w = windows[i];
+			int mine = pieces[checker][w];
+			int theirs = pieces[opponent][w];
+			if(theirs == 0){
+				//still open for the checker, now with one more piece
+				openWindows[checker][mine]--;
+				openWindows[checker][mine+1]++;
+			}
+			if(mine == 0){
+				//the opponent can't make a line here anymore
+				openWindows[opponent][theirs]--;
+			}
+			pieces[checker][w] = mine+1;
+		}
+	}
+
+	//A piece of the checker was taken off the spot, undoes add
+	public void remove(int spot, int checker){
+		int opponent = 3-checker;
+		int[] windows = spotWindows[spot];
+		for(int i = 0; i < windows.length; i++){
+			int w = windows[i];
+			int mine = pieces[checker][w]-1;
+			int theirs = pieces[opponent][w];
+			pieces[checker][w] = mine;
+			if(theirs == 0){
+				openWindows[checker][mine+1]--;
+				openWindows[checker][mine]++;
+			}
+			if(mine == 0){
+				openWindows[opponent][theirs]++;
+			}
+		}
+	}
+
+	/*
+	 * Number of windows open for the checker that have that many of their pieces
+	 * in them. A count of connectNumber means the checker has already won
+	 * */
+	public int getOpenWindows(int checker, int pieceCount){
+		return openWindows[checker][pieceCount];
+	}
+
+	public int getConnectNumber(){
+		return connectNumber;
+	}
+}
@@ -0,0 +1,44 @@
+package com.pennypop.project;
+
+/**
+ * This evaluator scores a board by its open windows, the lines of
+ * connectNumber spots that a player could still fill. Every window open for
+ * the checker adds to the score and every window open for the opponent takes
+ * away from it, and a window is worth 4 times more for each piece already in
+ * it, so three in a row with the fourth spot free counts for a lot more than
+ * a single piece.
+ *
+ * The counts come from the ThreatCounter the GameBoard keeps up to date on
+ * every move, so an evaluation only adds up a few numbers. The AIPlayer turns
+ * the counting on for the board it searches on. A board without counting is
+ * counted from scratch on every call, which is a lot slower, but the board
+ * is left the way it was.
+ *
+ * @author Erik Gallegos
+ * */
+public class ThreatEvaluator implements BoardEvaluator {
+
+	//the highest a window can be worth so big connect numbers don't overflow
+	private static final int MAX_WEIGHT = 1 << 20;
+	//a difference this big in the windows gets a score halfway between 50 and a win
+	private static final int SCALE = 64;
+
+	public int evaluate(GameBoard b, int checker){
+		ThreatCounter threats = b.getThreatCounter();
+		if(threats == null){
+			threats = new ThreatCounter(b.getNumRows(), b.getNumColumns(), b.getConnectNumber());
+			threats.countAll(b);
+		}
+		int opponent = 3-checker;
+		long value = 0;
+		int weight = 1;
+		//a full window is a win and is scored by the search, not here
+		for(int n = 1; n < threats.getConnectNumber(); n++){
+			value += (long)weight*(threats.getOpenWindows(checker, n)-threats.getOpenWindows(opponent, n));
+			weight = Math.min(weight*4, MAX_WEIGHT);
+		}
+		//squeezes any difference in between a loss and a win, 1 to 99
+		long score = 50L+49L*value/(Math.abs(value)+SCALE);
+		return (int)score;
+	}
+}
@@ -0,0 +1,54 @@
+package com.pennypop.project;
+
+/**
+ * This class is a copy of a GameBoard that keeps track of the time spent in
+ * the methods the search calls for every board, so the time checking for wins
+ * can be compared with the time adding and taking off pieces. The AIPlayer
+ * searches on one of these when detailed timing is turned on.
+ *
+ * @author Erik Gallegos
+ * */
+public class TimedGameBoard extends GameBoard {
+
+	private long winCheckNanos;
+	private long moveNanos;
+
+	public TimedGameBoard(GameBoard other){
+		super(other);
+	}
+
+	public boolean addMove(int column, int checker){
+		long start = System.nanoTime();
+		boolean added = super.addMove(column, checker);
+		moveNanos += System.nanoTime()-start;
+		return added;
+	}
+
+	public void delMove(int column){
+		long start = System.nanoTime();
+		super.delMove(column);
+		moveNanos += System.nanoTime()-start;
+	}
+
+	public boolean winsFor(int checker){
+		long start = System.nanoTime();
+		boolean wins = super.winsFor(checker);
+		winCheckNanos += System.nanoTime()-start;
+		return wins;
+	}
+
+	public boolean lastMoveWins(){
+		long start = System.nanoTime();
+		boolean wins = super.lastMoveWins();
+		winCheckNanos += System.nanoTime()-start;
+		return wins;
+	}
+
+	public long getWinCheckNanos(){
+		return winCheckNanos;
+	}
+
+	public long getMoveNanos(){
+		return moveNanos;
+	}
+}
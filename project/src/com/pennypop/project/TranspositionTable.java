@@ -0,0 +1,181 @@
+package com.pennypop.project;
+
+import java.util.Arrays;
+
+/**
+ * This class is a fixed size table that remembers the scores of boards the
+ * AI has already searched, so when the same board is reached through a
+ * different order of moves it doesn't have to be searched again. Boards are
+ * looked up by the Zobrist hash kept by GameBoard.
+ *
+ * The table is two long arrays so it doesn't create any objects while the AI
+ * is searching. One entry is packed into one long: the score, how many ply
+ * it was searched to, whether the score is exact or only a bound, the best
+ * column and which search stored it. Each entry takes 16 bytes and the number
+ * of entries is the biggest power of 2 that fits in the memory given.
+ *
+ * When two boards land on the same slot the new one replaces the old one if
+ * the old one is from an earlier search or was searched to the same ply or
+ * less, otherwise the old one is kept since it took more work to get.
+ *
+ * The hit, miss and store counters aren't thread safe, so they are only
+ * about right when the table is shared between threads. The searches count
+ * their own lookups for SearchMetrics.
+ *
+ * @author Erik Gallegos
+ * */
+public class TranspositionTable {
+
+	//What kind of score is stored
+	public static final int EXACT = 0;
+	//the real score is at least the stored score
+	public static final int LOWER = 1;
+	//the real score is at most the stored score
+	public static final int UPPER = 2;
+
+	private static final int BYTES_PER_ENTRY = 16;
+	//layout of an entry, the score is stored with an offset so it is never negative
+	private static final int SCORE_OFFSET = 1 << 15;
+	private static final int DEPTH_SHIFT = 16;
+	private static final int BOUND_SHIFT = 24;
+	private static final int MOVE_SHIFT = 26;
+	private static final int GENERATION_SHIFT = 34;
+	private static final long USED = 1L << 40;
+
+	//the key is stored xor'ed with the entry so a half written slot is seen as a miss
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+	private int generation;
+
+	private long hits;
+	private long misses;
+	private long stores;
+	private long replacements;
+
+	public TranspositionTable(long memoryBytes){
+		long maxEntries = Math.max(1, memoryBytes/BYTES_PER_ENTRY);
+		int size = 1;
+		//biggest power of 2 that fits, arrays can't be bigger than an int
+		while(size*2L <= maxEntries && size < (1 << 30)){
+			size *= 2;
+		}
+		keys = new long[size];
+		entries = new long[size];
+		mask = size-1;
+		generation = 0;
+	}
+
+	/*
+	 * Returns the entry for the key or 0 if the table doesn't have it. Use the
+	 * get methods to read the entry
+	 * */
+	public long probe(long key){
+		int index = (int)key & mask;
+		long entry = entries[index];
+		if(entry != 0 && (keys[index] ^ entry) == key){
+			hits++;
+			return entry;
+		}
+		misses++;
+		return 0;
+	}
+
+	//Stores a score for the key, move is the best column or -1 if there isn't one
+	public void store(long key, int depth, int bound, int score, int move){
+		int index = (int)key & mask;
+		long old = entries[index];
+		if(old != 0 && (keys[index] ^ old) != key){
+			//keep a deeper entry from this search instead of overwriting it
+			if(getGeneration(old) == generation && getDepth(old) > depth){
+				return;
+			}
+			replacements++;
+		}
+		//only 8 bits for the column, a board that wide just doesn't get a move saved
+		if(move >= 255){
+			move = -1;
+		}
+		long entry = USED
+			| ((long)generation << GENERATION_SHIFT)
+			| ((long)(move+1) << MOVE_SHIFT)
+			| ((long)bound << BOUND_SHIFT)
+			| ((long)Math.min(depth, 255) << DEPTH_SHIFT)
+			| (score+SCORE_OFFSET);
+		keys[index] = key ^ entry;
+		entries[index] = entry;
+		stores++;
+	}
+
+	//Call before each new search so the entries of old searches can be replaced
+	public void newSearch(){
+		generation = (generation+1) & 0x3F;
+	}
+
+	public void clear(){
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, 0);
+		generation = 0;
+	}
+
+	public void resetCounters(){
+		hits = 0;
+		misses = 0;
+		stores = 0;
+		replacements = 0;
+	}
+
+	//Methods to read an entry returned by probe
+	public static int getScore(long entry){
+		return (int)(entry & 0xFFFF)-SCORE_OFFSET;
+	}
+
+	public static int getDepth(long entry){
+		return (int)(entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	public static int getBound(long entry){
+		return (int)(entry >>> BOUND_SHIFT) & 0x3;
+	}
+
+	//the best column or -1 if none was stored
+	public static int getMove(long entry){
+		return ((int)(entry >>> MOVE_SHIFT) & 0xFF)-1;
+	}
+
+	private static int getGeneration(long entry){
+		return (int)(entry >>> GENERATION_SHIFT) & 0x3F;
+	}
+
+	public int getSize(){
+		return entries.length;
+	}
+
+	public long getMemoryBytes(){
+		return (long)entries.length*BYTES_PER_ENTRY;
+	}
+
+	public long getHits(){
+		return hits;
+	}
+
+	public long getMisses(){
+		return misses;
+	}
+
+	public long getStores(){
+		return stores;
+	}
+
+	public long getReplacements(){
+		return replacements;
+	}
+
+	public double getHitRate(){
+		long probes = hits+misses;
+		if(probes == 0){
+			return 0.0;
+		}
+		return (double)hits/probes;
+	}
+}